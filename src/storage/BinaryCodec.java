@@ -0,0 +1,403 @@
+package storage;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A {@code BinaryCodec} represents {@code Integer}s, {@code Long}s, {@code String}s, byte arrays, {@code null}, and
+ * simple records (arrays of {@code Object}s whose elements are again such values) using a compact binary format. Each
+ * value starts with a tag byte; integers are written as variable-length zig-zag numbers and strings and arrays are
+ * preceded by their lengths. Any other object is represented using Java serialization. Since a Java serialization
+ * stream starts with a byte that is not used as a tag, a {@code BinaryCodec} can also read objects that were stored
+ * using a {@code SerializationCodec}.
+ */
+public class BinaryCodec implements Codec {
+
+	/**
+	 * The tag of {@code null}.
+	 */
+	static final byte NULL = 1;
+
+	/**
+	 * The tag of {@code Integer}s.
+	 */
+	static final byte INTEGER = 2;
+
+	/**
+	 * The tag of {@code Long}s.
+	 */
+	static final byte LONG = 3;
+
+	/**
+	 * The tag of {@code String}s.
+	 */
+	static final byte STRING = 4;
+
+	/**
+	 * The tag of byte arrays.
+	 */
+	static final byte BYTES = 5;
+
+	/**
+	 * The tag of records (arrays of {@code Object}s).
+	 */
+	static final byte RECORD = 6;
+
+	/**
+	 * The tag of objects inside records that are represented using Java serialization (preceded by their lengths).
+	 */
+	static final byte SERIALIZED = 7;
+
+	/**
+	 * The first byte of a Java serialization stream, with which top-level objects represented using Java serialization
+	 * start.
+	 */
+	static final byte STREAM_MAGIC = (byte) 0xAC;
+
+	/**
+	 * The {@code SerializationCodec} used for objects that have no binary representation.
+	 */
+	static final SerializationCodec serialization = new SerializationCodec();
+
+	@Override
+	public byte[] encode(Object o) throws IOException {
+		if (!(o instanceof Integer || o instanceof Long || o instanceof String || o instanceof byte[]
+				|| o instanceof Object[] || o == null))
+			return serialization.encode(o);
+		Output out = new Output();
+		write(out, o);
+		return out.toByteArray();
+	}
+
+	@Override
+	public Object decode(ByteBuffer b, int offset, int length) throws IOException {
+		if (length > 0 && b.get(offset) == STREAM_MAGIC)
+			return serialization.decode(b, offset, length);
+		Input in = new Input(b, offset, offset + length);
+		return read(in);
+	}
+
+	@Override
+	public int length(ByteBuffer b, int offset, int length) throws IOException {
+		if (length > 0 && b.get(offset) == STREAM_MAGIC)
+			return serialization.length(b, offset, length);
+		Input in = new Input(b, offset, offset + length);
+		skip(in);
+		return in.position - offset;
+	}
+
+	/**
+	 * Writes the specified object.
+	 * 
+	 * @param out
+	 *            the {@code Output} to write to
+	 * @param o
+	 *            an object
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void write(Output out, Object o) throws IOException {
+		if (o == null)
+			out.write(NULL);
+		else if (o instanceof Integer) {
+			out.write(INTEGER);
+			int v = (Integer) o;
+			out.writeVarLong(((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL);
+		} else if (o instanceof Long) {
+			out.write(LONG);
+			long v = (Long) o;
+			out.writeVarLong((v << 1) ^ (v >> 63));
+		} else if (o instanceof String) {
+			byte[] b = ((String) o).getBytes(StandardCharsets.UTF_8);
+			out.write(STRING);
+			out.writeVarLong(b.length);
+			out.write(b);
+		} else if (o instanceof byte[]) {
+			byte[] b = (byte[]) o;
+			out.write(BYTES);
+			out.writeVarLong(b.length);
+			out.write(b);
+		} else if (o instanceof Object[]) {
+			Object[] a = (Object[]) o;
+			out.write(RECORD);
+			out.writeVarLong(a.length);
+			for (Object e : a)
+				write(out, e);
+		} else {
+			byte[] b = serialization.encode(o);
+			out.write(SERIALIZED);
+			out.writeVarLong(b.length);
+			out.write(b);
+		}
+	}
+
+	/**
+	 * Reads an object.
+	 * 
+	 * @param in
+	 *            the {@code Input} to read from
+	 * @return the object read
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	Object read(Input in) throws IOException {
+		byte tag = in.read();
+		switch (tag) {
+		case NULL:
+			return null;
+		case INTEGER: {
+			int v = (int) in.readVarLong();
+			return (v >>> 1) ^ -(v & 1);
+		}
+		case LONG: {
+			long v = in.readVarLong();
+			return (v >>> 1) ^ -(v & 1);
+		}
+		case STRING: {
+			int length = in.readLength();
+			if (in.buffer.hasArray()) {
+				String s = new String(in.buffer.array(), in.buffer.arrayOffset() + in.position, length,
+						StandardCharsets.UTF_8);
+				in.position += length;
+				return s;
+			}
+			return new String(in.read(length), StandardCharsets.UTF_8);
+		}
+		case BYTES:
+			return in.read(in.readLength());
+		case RECORD: {
+			Object[] a = new Object[in.readLength()];
+			for (int i = 0; i < a.length; i++)
+				a[i] = read(in);
+			return a;
+		}
+		case SERIALIZED: {
+			int length = in.readLength();
+			Object o = serialization.decode(in.buffer, in.position, length);
+			in.position += length;
+			return o;
+		}
+		default:
+			throw new StreamCorruptedException("invalid tag: " + tag);
+		}
+	}
+
+	/**
+	 * Skips an object without creating it.
+	 * 
+	 * @param in
+	 *            the {@code Input} to read from
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void skip(Input in) throws IOException {
+		byte tag = in.read();
+		switch (tag) {
+		case NULL:
+			return;
+		case INTEGER:
+		case LONG:
+			in.readVarLong();
+			return;
+		case STRING:
+		case BYTES:
+		case SERIALIZED: {
+			int length = in.readLength();
+			in.position += length;
+			return;
+		}
+		case RECORD:
+			for (int i = in.readLength(); i > 0; i--)
+				skip(in);
+			return;
+		default:
+			throw new StreamCorruptedException("invalid tag: " + tag);
+		}
+	}
+
+	/**
+	 * An {@code Output} collects the bytes written by a {@code BinaryCodec}.
+	 */
+	static class Output {
+
+		/**
+		 * The bytes written so far.
+		 */
+		byte[] bytes = new byte[16];
+
+		/**
+		 * The number of bytes written so far.
+		 */
+		int size = 0;
+
+		/**
+		 * Writes the specified byte.
+		 * 
+		 * @param b
+		 *            a byte
+		 */
+		void write(byte b) {
+			ensureCapacity(size + 1);
+			bytes[size++] = b;
+		}
+
+		/**
+		 * Writes the specified bytes.
+		 * 
+		 * @param b
+		 *            a byte array
+		 */
+		void write(byte[] b) {
+			ensureCapacity(size + b.length);
+			System.arraycopy(b, 0, bytes, size, b.length);
+			size += b.length;
+		}
+
+		/**
+		 * Writes the specified non-negative number using 7 bits per byte.
+		 * 
+		 * @param v
+		 *            a number (treated as unsigned)
+		 */
+		void writeVarLong(long v) {
+			while ((v & ~0x7FL) != 0) {
+				write((byte) ((v & 0x7F) | 0x80));
+				v >>>= 7;
+			}
+			write((byte) v);
+		}
+
+		/**
+		 * Makes room for the specified number of bytes.
+		 * 
+		 * @param capacity
+		 *            the number of bytes to make room for
+		 */
+		void ensureCapacity(int capacity) {
+			if (capacity > bytes.length)
+				bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+		}
+
+		/**
+		 * Returns the bytes written so far.
+		 * 
+		 * @return the bytes written so far
+		 */
+		byte[] toByteArray() {
+			return Arrays.copyOf(bytes, size);
+		}
+
+	}
+
+	/**
+	 * An {@code Input} reads the bytes of a region of a {@code ByteBuffer} without changing the position of the
+	 * {@code ByteBuffer}.
+	 */
+	static class Input {
+
+		/**
+		 * The {@code ByteBuffer} to read from.
+		 */
+		ByteBuffer buffer;
+
+		/**
+		 * The index of the next byte to read.
+		 */
+		int position;
+
+		/**
+		 * The index immediately after the last byte that can be read.
+		 */
+		int limit;
+
+		/**
+		 * Constructs an {@code Input}.
+		 * 
+		 * @param buffer
+		 *            a {@code ByteBuffer}
+		 * @param position
+		 *            the index of the first byte to read
+		 * @param limit
+		 *            the index immediately after the last byte that can be read
+		 */
+		Input(ByteBuffer buffer, int position, int limit) {
+			this.buffer = buffer;
+			this.position = position;
+			this.limit = limit;
+		}
+
+		/**
+		 * Reads a byte.
+		 * 
+		 * @return the byte read
+		 * @throws IOException
+		 *             if no more bytes can be read
+		 */
+		byte read() throws IOException {
+			if (position >= limit)
+				throw new StreamCorruptedException("unexpected end of data");
+			return buffer.get(position++);
+		}
+
+		/**
+		 * Reads the specified number of bytes.
+		 * 
+		 * @param length
+		 *            the number of bytes to read
+		 * @return the bytes read
+		 * @throws IOException
+		 *             if not enough bytes can be read
+		 */
+		byte[] read(int length) throws IOException {
+			if (length > limit - position)
+				throw new StreamCorruptedException("unexpected end of data");
+			byte[] b = new byte[length];
+			if (buffer.hasArray())
+				System.arraycopy(buffer.array(), buffer.arrayOffset() + position, b, 0, length);
+			else {
+				ByteBuffer d = buffer.duplicate();
+				d.position(position);
+				d.get(b);
+			}
+			position += length;
+			return b;
+		}
+
+		/**
+		 * Reads a number written using 7 bits per byte.
+		 * 
+		 * @return the number read
+		 * @throws IOException
+		 *             if not enough bytes can be read
+		 */
+		long readVarLong() throws IOException {
+			long v = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = read();
+				v |= (long) (b & 0x7F) << shift;
+				if (b >= 0)
+					return v;
+			}
+			throw new StreamCorruptedException("malformed number");
+		}
+
+		/**
+		 * Reads a length that must fit in the remaining bytes.
+		 * 
+		 * @return the length read
+		 * @throws IOException
+		 *             if the length is invalid
+		 */
+		int readLength() throws IOException {
+			long length = readVarLong();
+			if (length < 0 || length > limit - position)
+				throw new StreamCorruptedException("invalid length: " + length);
+			return (int) length;
+		}
+
+	}
+
+}
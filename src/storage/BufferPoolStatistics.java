@@ -0,0 +1,232 @@
+package storage;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@code BufferPoolStatistics} keeps the statistics of a {@code BufferedFileManager}. The counters are
+ * {@code LongAdder}s so that threads updating them at once rarely contend. The counters of the files are also kept in
+ * the {@code SlottedPageFile}s ({@code reads} and {@code writes}), and those counters are reset together.
+ */
+public class BufferPoolStatistics implements BufferPoolStatisticsMXBean {
+
+	/**
+	 * The {@code BufferedFileManager} whose statistics are kept.
+	 */
+	BufferedFileManager manager;
+
+	/**
+	 * The number of hits.
+	 */
+	LongAdder hits = new LongAdder();
+
+	/**
+	 * The number of misses.
+	 */
+	LongAdder misses = new LongAdder();
+
+	/**
+	 * The number of evictions.
+	 */
+	LongAdder evictions = new LongAdder();
+
+	/**
+	 * The number of evictions of dirty {@code SlottedPage}s.
+	 */
+	LongAdder dirtyEvictions = new LongAdder();
+
+	/**
+	 * The number of {@code SlottedPage}s read ahead.
+	 */
+	LongAdder readAheadPages = new LongAdder();
+
+	/**
+	 * The number of hits on {@code SlottedPage}s read ahead.
+	 */
+	LongAdder readAheadHits = new LongAdder();
+
+	/**
+	 * The number of failures of the {@code PageCleaner} to save {@code SlottedPage}s.
+	 */
+	LongAdder cleanerFailures = new LongAdder();
+
+	/**
+	 * The number of failed reads ahead in the background.
+	 */
+	LongAdder readAheadFailures = new LongAdder();
+
+	/**
+	 * The numbers of hits and misses of each file.
+	 */
+	ConcurrentHashMap<Integer, LongAdder[]> files = new ConcurrentHashMap<Integer, LongAdder[]>();
+
+	/**
+	 * Constructs a {@code BufferPoolStatistics}.
+	 * 
+	 * @param manager
+	 *            the {@code BufferedFileManager} whose statistics are kept
+	 */
+	BufferPoolStatistics(BufferedFileManager manager) {
+		this.manager = manager;
+	}
+
+	/**
+	 * Records a hit on a {@code SlottedPage} of the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 */
+	void hit(int fileID) {
+		hits.increment();
+		counters(fileID)[0].increment();
+	}
+
+	/**
+	 * Records a miss on a {@code SlottedPage} of the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 */
+	void miss(int fileID) {
+		misses.increment();
+		counters(fileID)[1].increment();
+	}
+
+	/**
+	 * Returns the numbers of hits and misses of the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 * @return the numbers of hits and misses of the specified file
+	 */
+	LongAdder[] counters(int fileID) {
+		LongAdder[] c = files.get(fileID);
+		if (c == null)
+			c = files.computeIfAbsent(fileID, id -> new LongAdder[] { new LongAdder(), new LongAdder() });
+		return c;
+	}
+
+	@Override
+	public int getBufferSize() {
+		return manager.BufferSize;
+	}
+
+	@Override
+	public long getBudget() {
+		return manager.budget();
+	}
+
+	@Override
+	public long getHits() {
+		return hits.sum();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@Override
+	public double getHitRatio() {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	@Override
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	@Override
+	public long getDirtyEvictions() {
+		return dirtyEvictions.sum();
+	}
+
+	@Override
+	public long getReadAheadPages() {
+		return readAheadPages.sum();
+	}
+
+	@Override
+	public long getReadAheadHits() {
+		return readAheadHits.sum();
+	}
+
+	@Override
+	public long getReadAheadFailures() {
+		return readAheadFailures.sum();
+	}
+
+	@Override
+	public long getCleanerFailures() {
+		return cleanerFailures.sum();
+	}
+
+	@Override
+	public int getPinnedFrames() {
+		return manager.pinnedFrameCount();
+	}
+
+	@Override
+	public int getDirtyPages() {
+		return manager.dirtyPageCount();
+	}
+
+	@Override
+	public Map<Integer, Integer> getResidentPages() {
+		return manager.frameCounts();
+	}
+
+	@Override
+	public Map<Integer, Long> getFileHits() {
+		Map<Integer, Long> m = new TreeMap<Integer, Long>();
+		files.forEach((fileID, c) -> m.put(fileID, c[0].sum()));
+		return m;
+	}
+
+	@Override
+	public Map<Integer, Long> getFileMisses() {
+		Map<Integer, Long> m = new TreeMap<Integer, Long>();
+		files.forEach((fileID, c) -> m.put(fileID, c[1].sum()));
+		return m;
+	}
+
+	@Override
+	public Map<Integer, Long> getFileReads() {
+		Map<Integer, Long> m = new TreeMap<Integer, Long>();
+		manager.id2file.forEach((fileID, f) -> m.put(fileID, f.reads.sum()));
+		return m;
+	}
+
+	@Override
+	public Map<Integer, Long> getFileWrites() {
+		Map<Integer, Long> m = new TreeMap<Integer, Long>();
+		manager.id2file.forEach((fileID, f) -> m.put(fileID, f.writes.sum()));
+		return m;
+	}
+
+	@Override
+	public void reset() {
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+		dirtyEvictions.reset();
+		readAheadPages.reset();
+		readAheadHits.reset();
+		readAheadFailures.reset();
+		cleanerFailures.reset();
+		files.clear();
+		for (SlottedPageFile f : manager.id2file.values())
+			f.resetStatistics();
+	}
+
+	@Override
+	public String toString() {
+		return "{hits:" + getHits() + ", misses:" + getMisses() + ", evictions:" + getEvictions() + ", dirty evictions:"
+				+ getDirtyEvictions() + "}";
+	}
+
+}
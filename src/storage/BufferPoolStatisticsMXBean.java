@@ -0,0 +1,147 @@
+package storage;
+
+import java.util.Map;
+
+/**
+ * The management interface through which the statistics of a {@code BufferedFileManager} are exposed via JMX.
+ */
+public interface BufferPoolStatisticsMXBean {
+
+	/**
+	 * Returns the number of frames in the buffer.
+	 * 
+	 * @return the number of frames in the buffer
+	 */
+	int getBufferSize();
+
+	/**
+	 * Returns the memory budget of the buffer.
+	 * 
+	 * @return the number of bytes that the buffered {@code SlottedPage}s can occupy
+	 */
+	long getBudget();
+
+	/**
+	 * Returns the number of requests for {@code SlottedPage}s that were found in the buffer.
+	 * 
+	 * @return the number of requests for {@code SlottedPage}s that were found in the buffer
+	 */
+	long getHits();
+
+	/**
+	 * Returns the number of requests for {@code SlottedPage}s that had to be read from files.
+	 * 
+	 * @return the number of requests for {@code SlottedPage}s that had to be read from files
+	 */
+	long getMisses();
+
+	/**
+	 * Returns the fraction of requests for {@code SlottedPage}s that were found in the buffer.
+	 * 
+	 * @return the fraction of requests for {@code SlottedPage}s that were found in the buffer; {@code 0} if no request
+	 *         has been made
+	 */
+	double getHitRatio();
+
+	/**
+	 * Returns the number of {@code SlottedPage}s evicted from the buffer.
+	 * 
+	 * @return the number of {@code SlottedPage}s evicted from the buffer
+	 */
+	long getEvictions();
+
+	/**
+	 * Returns the number of evicted {@code SlottedPage}s that had to be saved before being evicted.
+	 * 
+	 * @return the number of evicted {@code SlottedPage}s that had to be saved before being evicted
+	 */
+	long getDirtyEvictions();
+
+	/**
+	 * Returns the number of {@code SlottedPage}s read ahead.
+	 * 
+	 * @return the number of {@code SlottedPage}s read ahead
+	 */
+	long getReadAheadPages();
+
+	/**
+	 * Returns the number of requests for {@code SlottedPage}s that had been read ahead.
+	 * 
+	 * @return the number of requests for {@code SlottedPage}s that had been read ahead
+	 */
+	long getReadAheadHits();
+
+	/**
+	 * Returns the number of reads ahead in the background that failed. Read-ahead is best effort, so the pages are read
+	 * again when they are requested.
+	 * 
+	 * @return the number of reads ahead in the background that failed
+	 */
+	long getReadAheadFailures();
+
+	/**
+	 * Returns the number of times the {@code PageCleaner} failed to save dirty {@code SlottedPage}s. The
+	 * {@code SlottedPage}s remain dirty and are saved again later.
+	 * 
+	 * @return the number of times the {@code PageCleaner} failed to save dirty {@code SlottedPage}s
+	 */
+	long getCleanerFailures();
+
+	/**
+	 * Returns the number of frames that are currently pinned.
+	 * 
+	 * @return the number of frames that are currently pinned
+	 */
+	int getPinnedFrames();
+
+	/**
+	 * Returns the number of frames holding dirty {@code SlottedPage}s.
+	 * 
+	 * @return the number of frames holding dirty {@code SlottedPage}s
+	 */
+	int getDirtyPages();
+
+	/**
+	 * Returns the number of buffered {@code SlottedPage}s of each file.
+	 * 
+	 * @return a map from the ID of each file to the number of its {@code SlottedPage}s in the buffer
+	 */
+	Map<Integer, Integer> getResidentPages();
+
+	/**
+	 * Returns the number of hits for each file.
+	 * 
+	 * @return a map from the ID of each file to the number of requests for its {@code SlottedPage}s that were found in
+	 *         the buffer
+	 */
+	Map<Integer, Long> getFileHits();
+
+	/**
+	 * Returns the number of misses for each file.
+	 * 
+	 * @return a map from the ID of each file to the number of requests for its {@code SlottedPage}s that had to be
+	 *         read from the file
+	 */
+	Map<Integer, Long> getFileMisses();
+
+	/**
+	 * Returns the number of {@code SlottedPage}s read from each file.
+	 * 
+	 * @return a map from the ID of each file to the number of {@code SlottedPage}s read from the file
+	 */
+	Map<Integer, Long> getFileReads();
+
+	/**
+	 * Returns the number of {@code SlottedPage}s written to each file.
+	 * 
+	 * @return a map from the ID of each file to the number of {@code SlottedPage}s written to the file
+	 */
+	Map<Integer, Long> getFileWrites();
+
+	/**
+	 * Resets the counters (the numbers of frames currently pinned, dirty, or holding {@code SlottedPage}s are not
+	 * affected).
+	 */
+	void reset();
+
+}
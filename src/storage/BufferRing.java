@@ -0,0 +1,87 @@
+package storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * A {@code BufferRing} is a small ring of frames that a {@code BufferedFileManager} lends to a single thread for a
+ * bulk operation such as a full scan or a bulk load. A {@code SlottedPage} that is not in the buffer is loaded into the
+ * next frame of the ring, replacing the {@code SlottedPage} loaded there one round earlier, instead of into a frame
+ * chosen by the {@code ReplacementPolicy}. The bulk operation therefore leaves the rest of the buffer intact, and the
+ * {@code ReplacementPolicy} is not informed of the {@code SlottedPage}s accessed through the {@code BufferRing}.
+ * {@code SlottedPage}s already in the buffer are used where they are. A {@code BufferRing} must be closed when the bulk
+ * operation is over, which returns its frames to the buffer.
+ */
+public class BufferRing implements Closeable {
+
+	/**
+	 * The {@code BufferedFileManager} that lends the frames.
+	 */
+	BufferedFileManager manager;
+
+	/**
+	 * The frames in this {@code BufferRing} ({@code -1} for the positions that have no frame yet).
+	 */
+	int[] frames;
+
+	/**
+	 * The position of the frame to use next.
+	 */
+	int next = 0;
+
+	/**
+	 * Constructs a {@code BufferRing}.
+	 * 
+	 * @param manager
+	 *            the {@code BufferedFileManager} that lends the frames
+	 * @param size
+	 *            the number of frames in the {@code BufferRing}
+	 */
+	BufferRing(BufferedFileManager manager, int size) {
+		this.manager = manager;
+		frames = new int[size];
+		Arrays.fill(frames, -1);
+	}
+
+	/**
+	 * Returns an iterator over all objects stored in the specified file, loading {@code SlottedPage}s into this
+	 * {@code BufferRing}.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @return an iterator over all objects stored in the specified file
+	 */
+	public Iterator<Object> iterator(int fileID) {
+		return manager.new BufferedFileIterator(fileID, this);
+	}
+
+	/**
+	 * Adds the specified object in the specified file, placing new {@code SlottedPage}s into this {@code BufferRing}.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param o
+	 *            the object to add
+	 * @return the location of the object in the specified file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Long add(int fileID, Object o) throws IOException {
+		return manager.add(fileID, o, this);
+	}
+
+	/**
+	 * Returns the frames of this {@code BufferRing} to the buffer. The {@code SlottedPage}s in those frames are saved
+	 * if dirty and evicted unless other threads are using them.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public void close() throws IOException {
+		manager.close(this);
+	}
+
+}
@@ -1,100 +1,1346 @@
 package storage;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
  
-import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
  
-import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import storage.SlottedPage.OverflowException;
  
 
- 
+ 
+
+/**
+ * A {@code BufferedFileManager} manages a storage space using the slotted page format and buffering.
+ * 
+ * A {@code BufferedFileManager} can be used by multiple threads at once. A {@code SlottedPage} obtained from the buffer
+ * is pinned (and thus cannot be evicted) and latched in shared or exclusive mode until it is released. The page table
+ * is split into stripes, each guarded by its own lock, so that threads accessing different pages rarely contend.
+ * Finding a free frame (and evicting a {@code SlottedPage} if needed) is done while holding the eviction lock.
+ * 
+ * In the off-heap mode, the frames are regions of direct {@code ByteBuffer}s allocated once, and each frame has a
+ * {@code SlottedPage} that serves as a view over the frame and is reused whenever a {@code SlottedPage} is loaded
+ * into the frame. The data of buffered {@code SlottedPage}s is then kept outside the Java heap, so that the heap usage
+ * does not grow with the size of the buffer.
+ * 
+ * A {@code PageCleaner} can be started to save dirty {@code SlottedPage}s in the background (see
+ * {@link #startCleaner(double, double, long)}).
+ * 
+ * If read-ahead is enabled (see {@link #setReadAhead(int, boolean)}), a miss on the page following the page accessed
+ * last in the same file makes the {@code BufferedFileManager} read a run of subsequent pages with a single read and
+ * place them in the buffer before they are requested.
+ * 
+ * The buffer is shared by all files. A file can be given a minimum and a maximum number of frames (see
+ * {@link #setQuota(int, int, int)}) so that frequently accessed files cannot take the whole buffer. A file holding its
+ * maximum number of frames replaces one of its own {@code SlottedPage}s to load another, and a file holding no more
+ * than its minimum number of frames keeps them while the {@code SlottedPage}s of other files can be evicted.
+ * 
+ * The size of the buffer can be given as a number of frames or as a memory budget in bytes, and can be changed at
+ * runtime within the capacity chosen at construction time (see {@link #resize(int)} and {@link #setBudget(long)}).
+ * Each frame holds one {@code SlottedPage} of any file, whatever the page size of that file. In the off-heap mode,
+ * every frame has the frame size chosen at construction time, which limits the page sizes of the files; otherwise, the
+ * frame size is only used to convert memory budgets into numbers of frames.
+ * Shrinking the buffer evicts the {@code SlottedPage}s in the frames being removed, waiting for the threads that
+ * currently use them to release them.
+ * 
+ * A bulk operation such as a full scan can use a {@code BufferRing} (see {@link #ring(int)}), a small ring of frames
+ * that the {@code SlottedPage}s of the operation cycle through so that the other {@code SlottedPage}s stay in the
+ * buffer.
+ * 
+ * The hits, misses, and evictions of a {@code BufferedFileManager} are counted in its {@code BufferPoolStatistics}
+ * (see {@link #statistics()}), which can also be registered as an MXBean (see {@link #registerStatistics()}).
+ * 
+ * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
+ */
+public class BufferedFileManager extends FileManager {
+
+	/**
+	 * The number of frames currently in use. The frames from {@code BufferSize} up to the capacity are neither free
+	 * nor allocated.
+	 */
+	volatile int BufferSize;
+
+	/**
+	 * The number of bytes of each frame (the largest page size of the files in the off-heap mode).
+	 */
+	final int frameSize;
+
+	/**
+	 * The {@code SlottedPage} held in each frame of the buffer ({@code null} if the frame is free or being loaded).
+	 */
+	SlottedPage[] frames;
+
+	/**
+	 * The {@code SlottedPage} serving as the view over each frame of the buffer ({@code null} if not in the off-heap
+	 * mode).
+	 */
+	SlottedPage[] views;
+
+	/**
+	 * The ID of the file containing the {@code SlottedPage} held in each frame of the buffer.
+	 */
+	int[] frameFileIDs;
+
+	/**
+	 * The number of threads that currently use each frame of the buffer.
+	 */
+	AtomicIntegerArray pins;
+
+	/**
+	 * The latch of each frame of the buffer.
+	 */
+	ReentrantReadWriteLock[] latches;
+
+	/**
+	 * A flag for each frame indicating whether or not the frame belongs to a {@code BufferRing} (guarded by the
+	 * eviction lock).
+	 */
+	boolean[] ringed;
+
+	/**
+	 * The stripes of the page table that maps the file and page IDs of each buffered {@code SlottedPage} to its frame.
+	 * Each stripe is guarded by synchronizing on it.
+	 */
+	PageTable[] pageTables;
+
+	/**
+	 * The number of bits by which hash codes are shifted to choose a stripe of the page table.
+	 */
+	int stripeShift;
+
+	/**
+	 * The frames that are currently free.
+	 */
+	int[] freeFrames;
+
+	/**
+	 * The number of frames that are currently free.
+	 */
+	int freeFrameCount;
+
+	/**
+	 * The {@code ReplacementPolicy} that chooses the frames to reuse when the buffer is full.
+	 */
+	ReplacementPolicy policy;
+
+	/**
+	 * The lock that guards the free frames and the {@code ReplacementPolicy} while frames are allocated or freed.
+	 */
+	ReentrantLock evictionLock = new ReentrantLock();
+
+	/**
+	 * The condition that a frame must satisfy in order to be evicted.
+	 */
+	IntPredicate evictable = frame -> frame < BufferSize && !ringed[frame] && pins.get(frame) == 0;
+
+	/**
+	 * The {@code Quota} of each file that has one (guarded by the eviction lock).
+	 */
+	HashMap<Integer, Quota> quotas = new HashMap<Integer, Quota>();
+
+	/**
+	 * The sum of the minimum numbers of frames in the {@code Quota}s (guarded by the eviction lock).
+	 */
+	int reservedFrames = 0;
+
+	/**
+	 * The number of frames holding dirty {@code SlottedPage}s.
+	 */
+	AtomicInteger dirtyPages = new AtomicInteger();
+
+	/**
+	 * The {@code PageCleaner} of this {@code BufferedFileManager} ({@code null} if not started).
+	 */
+	volatile PageCleaner cleaner;
+
+	/**
+	 * The number of pages read ahead when sequential access is detected ({@code 0} if read-ahead is disabled).
+	 */
+	volatile int readAheadDepth = 0;
+
+	/**
+	 * The {@code ExecutorService} that reads pages ahead in the background ({@code null} if pages are read ahead by
+	 * the thread detecting sequential access).
+	 */
+	volatile ExecutorService readAheadExecutor;
+
+	/**
+	 * The ID of the page accessed last in each file.
+	 */
+	ConcurrentHashMap<Integer, AtomicInteger> lastPageIDs = new ConcurrentHashMap<Integer, AtomicInteger>();
+
+	/**
+	 * A flag for each frame indicating whether or not the frame has been filled by read-ahead and not accessed yet.
+	 */
+	boolean[] prefetched;
+
+	/**
+	 * The {@code BufferPoolStatistics} of this {@code BufferedFileManager}.
+	 */
+	BufferPoolStatistics statistics = new BufferPoolStatistics(this);
+
+	/**
+	 * The name under which the {@code BufferPoolStatistics} is registered ({@code null} if not registered).
+	 */
+	ObjectName statisticsName;
+
+	/**
+	 * The number of {@code BufferedFileManager}s whose {@code BufferPoolStatistics} have been registered.
+	 */
+	static int registrations = 0;
+
+	/**
+	 * Constructs a {@code BufferedFileManager}.
+	 * 
+	 * @param bufferSize
+	 *            the number of {@code SlottedPage}s that the buffer can maintain
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public BufferedFileManager(int bufferSize) throws IOException {
+		this(bufferSize, new ClockPolicy());
+	}
+
+	/**
+	 * Constructs a {@code BufferedFileManager}.
+	 * 
+	 * @param bufferSize
+	 *            the number of {@code SlottedPage}s that the buffer can maintain
+	 * @param policy
+	 *            the {@code ReplacementPolicy} that chooses the {@code SlottedPage}s to evict from the buffer
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public BufferedFileManager(int bufferSize, ReplacementPolicy policy) throws IOException {
+		this(bufferSize, policy, false);
+	}
+
+	/**
+	 * Constructs a {@code BufferedFileManager}.
+	 * 
+	 * @param bufferSize
+	 *            the number of {@code SlottedPage}s that the buffer can maintain
+	 * @param policy
+	 *            the {@code ReplacementPolicy} that chooses the {@code SlottedPage}s to evict from the buffer
+	 * @param offHeap
+	 *            {@code true} to keep the buffered {@code SlottedPage}s outside the Java heap; {@code false} otherwise
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public BufferedFileManager(int bufferSize, ReplacementPolicy policy, boolean offHeap) throws IOException {
+		this(bufferSize, bufferSize, policy, offHeap);
+	}
+
+	/**
+	 * Constructs a {@code BufferedFileManager} whose buffer size is given as a memory budget. The buffer can later be
+	 * resized up to the specified maximum budget. Only the small per-frame bookkeeping (a few dozen bytes per frame) is
+	 * allocated for the maximum budget up front; the memory for the {@code SlottedPage}s grows with the buffer.
+	 * 
+	 * @param budget
+	 *            the number of bytes that the buffered {@code SlottedPage}s can occupy
+	 * @param maximumBudget
+	 *            the largest budget to which the buffer can grow
+	 * @param policy
+	 *            the {@code ReplacementPolicy} that chooses the {@code SlottedPage}s to evict from the buffer
+	 * @param offHeap
+	 *            {@code true} to keep the buffered {@code SlottedPage}s outside the Java heap; {@code false} otherwise
+	 * @throws IllegalArgumentException
+	 *             if the budget is smaller than a {@code SlottedPage} or larger than the maximum budget
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public BufferedFileManager(long budget, long maximumBudget, ReplacementPolicy policy, boolean offHeap)
+			throws IOException {
+		this(budget, maximumBudget, policy, offHeap, SlottedPage.SIZE);
+	}
+
+	/**
+	 * Constructs a {@code BufferedFileManager} whose buffer size is given as a memory budget and whose frames have the
+	 * specified size (see {@link #BufferedFileManager(long, long, ReplacementPolicy, boolean)}). In the off-heap mode,
+	 * the page sizes of the files cannot exceed the frame size.
+	 * 
+	 * @param budget
+	 *            the number of bytes that the buffered {@code SlottedPage}s can occupy
+	 * @param maximumBudget
+	 *            the largest budget to which the buffer can grow
+	 * @param policy
+	 *            the {@code ReplacementPolicy} that chooses the {@code SlottedPage}s to evict from the buffer
+	 * @param offHeap
+	 *            {@code true} to keep the buffered {@code SlottedPage}s outside the Java heap; {@code false} otherwise
+	 * @param frameSize
+	 *            the number of bytes of each frame
+	 * @throws IllegalArgumentException
+	 *             if the budget is smaller than a frame or larger than the maximum budget, or the frame size is invalid
+	 *             (see {@link SlottedPage#checkSize(int)})
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public BufferedFileManager(long budget, long maximumBudget, ReplacementPolicy policy, boolean offHeap,
+			int frameSize) throws IOException {
+		this(frames(budget, frameSize), frames(maximumBudget, frameSize), policy, offHeap, frameSize);
+	}
+
+	/**
+	 * Constructs a {@code BufferedFileManager}.
+	 * 
+	 * @param bufferSize
+	 *            the number of {@code SlottedPage}s that the buffer can maintain
+	 * @param capacity
+	 *            the largest number of frames to which the buffer can grow
+	 * @param policy
+	 *            the {@code ReplacementPolicy} that chooses the {@code SlottedPage}s to evict from the buffer
+	 * @param offHeap
+	 *            {@code true} to keep the buffered {@code SlottedPage}s outside the Java heap; {@code false} otherwise
+	 * @throws IllegalArgumentException
+	 *             if {@code 0 < bufferSize <= capacity} does not hold
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	BufferedFileManager(int bufferSize, int capacity, ReplacementPolicy policy, boolean offHeap) throws IOException {
+		this(bufferSize, capacity, policy, offHeap, SlottedPage.SIZE);
+	}
+
+	/**
+	 * Constructs a {@code BufferedFileManager}.
+	 * 
+	 * @param bufferSize
+	 *            the number of {@code SlottedPage}s that the buffer can maintain
+	 * @param capacity
+	 *            the largest number of frames to which the buffer can grow
+	 * @param policy
+	 *            the {@code ReplacementPolicy} that chooses the {@code SlottedPage}s to evict from the buffer
+	 * @param offHeap
+	 *            {@code true} to keep the buffered {@code SlottedPage}s outside the Java heap; {@code false} otherwise
+	 * @param frameSize
+	 *            the number of bytes of each frame
+	 * @throws IllegalArgumentException
+	 *             if {@code 0 < bufferSize <= capacity} does not hold or the frame size is invalid
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	BufferedFileManager(int bufferSize, int capacity, ReplacementPolicy policy, boolean offHeap, int frameSize)
+			throws IOException {
+		if (bufferSize < 1 || bufferSize > capacity)
+			throw new IllegalArgumentException();
+		this.frameSize = SlottedPage.checkSize(frameSize);
+		BufferSize = bufferSize;
+		this.policy = policy;
+		policy.resize(capacity);
+		frames = new SlottedPage[capacity];
+		frameFileIDs = new int[capacity];
+		prefetched = new boolean[capacity];
+		ringed = new boolean[capacity];
+		pins = new AtomicIntegerArray(capacity);
+		latches = new ReentrantReadWriteLock[capacity];
+		if (offHeap)
+			views = new SlottedPage[capacity];
+		// at least 4 stripes per processor (a power of 2)
+		int stripes = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+		stripeShift = 32 - Integer.numberOfTrailingZeros(stripes);
+		pageTables = new PageTable[stripes];
+		for (int i = 0; i < stripes; i++)
+			pageTables[i] = new PageTable(bufferSize / stripes + 1);
+		freeFrames = new int[capacity];
+		add(0, bufferSize);
+	}
+
+	/**
+	 * Returns the number of frames that fit in the specified memory budget.
+	 * 
+	 * @param budget
+	 *            a number of bytes
+	 * @param frameSize
+	 *            the number of bytes of each frame
+	 * @return the number of frames that fit in the specified memory budget
+	 * @throws IllegalArgumentException
+	 *             if the budget is smaller than a frame or too large
+	 */
+	static int frames(long budget, int frameSize) {
+		long frames = budget / frameSize;
+		if (frames < 1 || frames > Integer.MAX_VALUE)
+			throw new IllegalArgumentException();
+		return (int) frames;
+	}
+
+	/**
+	 * Makes the specified frames available by creating their latches (and views in the off-heap mode) if needed and
+	 * adding them to the free frames (the caller must hold the eviction lock unless this {@code BufferedFileManager}
+	 * is being constructed). A frame still held by a {@code BufferRing} (since the buffer shrank) is not added; it
+	 * returns to the free frames when the {@code BufferRing} gives it up.
+	 * 
+	 * @param from
+	 *            the first frame
+	 * @param to
+	 *            the frame after the last frame
+	 */
+	void add(int from, int to) {
+		for (int i = from; i < to; i++)
+			if (latches[i] == null)
+				latches[i] = new ReentrantReadWriteLock();
+		if (views != null)
+			views(views, from, to, frameSize);
+		for (int i = to - 1; i >= from; i--)
+			if (!ringed[i])
+				freeFrames[freeFrameCount++] = i;
+	}
+
+	/**
+	 * Allocates the specified frames outside the Java heap and creates a view over each of them.
+	 * 
+	 * @param views
+	 *            the array in which the views are stored
+	 * @param from
+	 *            the first frame
+	 * @param to
+	 *            the frame after the last frame
+	 * @param frameSize
+	 *            the number of bytes of each frame
+	 */
+	static void views(SlottedPage[] views, int from, int to, int frameSize) {
+		int framesPerArena = (1 << 30) / frameSize; // each direct ByteBuffer holds at most 1GB
+		ByteBuffer arena = null;
+		for (int i = from; i < to; i++) {
+			int slot = (i - from) % framesPerArena;
+			if (slot == 0)
+				arena = ByteBuffer.allocateDirect(Math.min(to - i, framesPerArena) * frameSize);
+			arena.limit((slot + 1) * frameSize).position(slot * frameSize);
+			views[i] = new SlottedPage(-1, arena.slice(), frameSize);
+			views[i].frame = i;
+		}
+	}
+
+	/**
+	 * Changes the number of frames in the buffer. When the buffer shrinks, the {@code SlottedPage}s in the frames
+	 * being removed are saved if dirty and evicted; this method waits for the threads currently using them to release
+	 * them, so the calling thread must not hold any {@code SlottedPage} obtained from this {@code BufferedFileManager}.
+	 * 
+	 * @param bufferSize
+	 *            the new number of frames
+	 * @throws IllegalArgumentException
+	 *             if the new number of frames is smaller than {@code 1} or the sum of the minimum numbers of frames of
+	 *             the files, or larger than the capacity of this {@code BufferedFileManager}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void resize(int bufferSize) throws IOException {
+		if (bufferSize < 1 || bufferSize > frames.length)
+			throw new IllegalArgumentException();
+		evictionLock.lock();
+		try {
+			if (bufferSize < reservedFrames)
+				throw new IllegalArgumentException();
+			int old = BufferSize;
+			if (bufferSize >= old) {
+				add(old, bufferSize);
+				BufferSize = bufferSize;
+				return;
+			}
+			BufferSize = bufferSize; // from now on, the frames being removed are neither allocated nor chosen as victims
+			int count = 0;
+			for (int i = 0; i < freeFrameCount; i++)
+				if (freeFrames[i] < bufferSize)
+					freeFrames[count++] = freeFrames[i];
+			freeFrameCount = count;
+			if (readAheadDepth > bufferSize / 2)
+				readAheadDepth = bufferSize / 2;
+		} finally {
+			evictionLock.unlock();
+		}
+		while (true) {
+			boolean done = true;
+			evictionLock.lock();
+			try {
+				for (int i = bufferSize; i < frames.length; i++)
+					if (frames[i] != null ? !evict(i) : pins.get(i) != 0)
+						done = false; // still in use (or being loaded)
+			} finally {
+				evictionLock.unlock();
+			}
+			if (done)
+				break;
+			Thread.yield(); // waits for other threads to release the frames being removed
+		}
+		if (views != null)
+			for (int i = bufferSize; i < frames.length; i++)
+				views[i] = null; // lets the memory of the removed frames be reclaimed
+	}
+
+	/**
+	 * Changes the memory budget of the buffer (see {@link #resize(int)}).
+	 * 
+	 * @param budget
+	 *            the number of bytes that the buffered {@code SlottedPage}s can occupy
+	 * @throws IllegalArgumentException
+	 *             if the budget is smaller than a {@code SlottedPage} or larger than the maximum budget
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void setBudget(long budget) throws IOException {
+		resize(frames(budget, frameSize));
+	}
+
+	/**
+	 * Returns the memory budget of the buffer.
+	 * 
+	 * @return the number of bytes that the buffered {@code SlottedPage}s can occupy
+	 */
+	public long budget() {
+		return (long) BufferSize * frameSize;
+	}
+
+	/**
+	 * Shuts down this {@code BufferedFileManager} after saving all of the dirty {@code SlottedPage}s in the buffer.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public void shutdown() throws IOException {
+		PageCleaner c = cleaner;
+		if (c != null)
+			c.shutdown();
+		setReadAhead(0, false);
+		for (int i = 0; i < BufferSize; i++)
+			flush(i, true);
+		super.shutdown();
+		synchronized (this) {
+			if (statisticsName != null) {
+				try {
+					ManagementFactory.getPlatformMBeanServer().unregisterMBean(statisticsName);
+				} catch (JMException e) {
+					e.printStackTrace();
+				}
+				statisticsName = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the {@code BufferPoolStatistics} of this {@code BufferedFileManager}.
+	 * 
+	 * @return the {@code BufferPoolStatistics} of this {@code BufferedFileManager}
+	 */
+	public BufferPoolStatistics statistics() {
+		return statistics;
+	}
+
+	/**
+	 * Registers the {@code BufferPoolStatistics} of this {@code BufferedFileManager} with the platform MBean server
+	 * (it is unregistered when this {@code BufferedFileManager} shuts down).
+	 * 
+	 * @return the name under which the {@code BufferPoolStatistics} is registered
+	 * @throws JMException
+	 *             if the {@code BufferPoolStatistics} cannot be registered
+	 */
+	public synchronized ObjectName registerStatistics() throws JMException {
+		if (statisticsName == null) {
+			int id;
+			synchronized (BufferedFileManager.class) {
+				id = registrations++;
+			}
+			ObjectName name = new ObjectName("storage:type=BufferedFileManager,id=" + id);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, name);
+			statisticsName = name;
+		}
+		return statisticsName;
+	}
+
+	/**
+	 * Starts a {@code PageCleaner} that saves dirty {@code SlottedPage}s in the background whenever the fraction of
+	 * dirty frames exceeds the specified high watermark, until that fraction drops to the specified low watermark.
+	 * 
+	 * @param lowWatermark
+	 *            the fraction of dirty frames at which cleaning stops
+	 * @param highWatermark
+	 *            the fraction of dirty frames above which cleaning starts
+	 * @param interval
+	 *            the maximum time in milliseconds between two checks of the fraction of dirty frames
+	 * @throws IllegalArgumentException
+	 *             if {@code 0 <= lowWatermark <= highWatermark <= 1} does not hold
+	 * @throws IllegalStateException
+	 *             if a {@code PageCleaner} has already been started
+	 */
+	public synchronized void startCleaner(double lowWatermark, double highWatermark, long interval) {
+		if (cleaner != null)
+			throw new IllegalStateException();
+		PageCleaner c = new PageCleaner(this, lowWatermark, highWatermark, interval);
+		c.start();
+		cleaner = c;
+	}
+
+	/**
+	 * Sets the number of pages to read ahead when sequential access to a file is detected.
+	 * 
+	 * @param depth
+	 *            the number of pages to read ahead ({@code 0} to disable read-ahead); at most half of the buffer size
+	 * @param background
+	 *            {@code true} to read pages ahead in a background thread; {@code false} to read them in the thread
+	 *            that detects sequential access
+	 * @throws IllegalArgumentException
+	 *             if the depth is negative or larger than half of the buffer size
+	 */
+	public synchronized void setReadAhead(int depth, boolean background) {
+		if (depth < 0 || depth > BufferSize / 2)
+			throw new IllegalArgumentException();
+		ExecutorService executor = readAheadExecutor;
+		if (executor != null && (!background || depth == 0)) {
+			readAheadExecutor = null;
+			executor.shutdown();
+		} else if (executor == null && background && depth > 0)
+			readAheadExecutor = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "read-ahead");
+				t.setDaemon(true);
+				return t;
+			});
+		readAheadDepth = depth;
+	}
+
+	/**
+	 * Returns the number of pages read ahead so far.
+	 * 
+	 * @return the number of pages read ahead so far
+	 */
+	public long readAheadPageCount() {
+		return statistics.readAheadPages.sum();
+	}
+
+	/**
+	 * Returns the number of accesses so far to pages that had been read ahead.
+	 * 
+	 * @return the number of accesses so far to pages that had been read ahead
+	 */
+	public long readAheadHitCount() {
+		return statistics.readAheadHits.sum();
+	}
+
+	/**
+	 * Returns a new {@code BufferRing} for a bulk operation performed by a single thread.
+	 * 
+	 * @param size
+	 *            the number of frames in the {@code BufferRing}
+	 * @return a new {@code BufferRing}
+	 * @throws IllegalArgumentException
+	 *             if the size is smaller than {@code 1} or larger than a quarter of the buffer size
+	 */
+	public BufferRing ring(int size) {
+		if (size < 1 || size > BufferSize / 4)
+			throw new IllegalArgumentException();
+		return new BufferRing(this, size);
+	}
+
+	/**
+	 * Returns a frame for the specified file from the specified {@code BufferRing}. The frame at the current position of
+	 * the {@code BufferRing} is reused after evicting its {@code SlottedPage} unless the frame is in use; otherwise, a
+	 * frame is taken from the buffer to replace it in the {@code BufferRing}. The returned frame is pinned on behalf of
+	 * the caller.
+	 * 
+	 * @param fileID
+	 *            the ID of the file whose {@code SlottedPage} will be held in the frame
+	 * @param ring
+	 *            a {@code BufferRing}
+	 * @return a free frame
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	int allocate(int fileID, BufferRing ring) throws IOException {
+		int position = ring.next;
+		ring.next = (position + 1) % ring.frames.length;
+		int reused = ring.frames[position];
+		SlottedPage p = reused >= 0 && reused < BufferSize ? frames[reused] : null;
+		if (p != null && p.dirty)
+			flush(reused, false); // saved before the eviction lock is taken
+		evictionLock.lock();
+		try {
+			int frame = ring.frames[position];
+			if (frame >= 0 && frame < BufferSize && pins.get(frame) == 0 && (frames[frame] == null || evict(frame))) {
+				claim(frame, fileID);
+				return frame;
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+		int frame = allocate(fileID);
+		evictionLock.lock();
+		try {
+			int old = ring.frames[position];
+			if (old >= 0)
+				unring(old);
+			ringed[frame] = true;
+			ring.frames[position] = frame;
+		} finally {
+			evictionLock.unlock();
+		}
+		return frame;
+	}
+
+	/**
+	 * Adds the specified object in the specified file, placing new {@code SlottedPage}s in the specified
+	 * {@code BufferRing}.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param o
+	 *            the object to add
+	 * @param ring
+	 *            a {@code BufferRing}
+	 * @return the location of the object in the specified file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	Long add(int fileID, Object o, BufferRing ring) throws IOException {
+		SlottedPageFile f = file(fileID);
+		f.appendLock.lock(); // only one thread at a time can append objects to the file
+		try {
+			int size = size(fileID);
+			if (size > 0) {
+				SlottedPage p = page(fileID, size - 1, true, ring);
+				try {
+					long location = concatenate(p.pageID(), p.add(o));
+					updated(p, fileID, ring);
+					return location;
+				} catch (OverflowException e) { // if the object cannot fit into the page
+				} finally {
+					release(p, fileID, true);
+				}
+			}
+			SlottedPage p = f.newPage(size);
+			long location;
+			try {
+				location = concatenate(p.pageID(), p.add(o));
+			} catch (OverflowException e) { // the overflow pages are not placed in the ring
+				return addOverflow(fileID, o);
+			}
+			updated(p, fileID, ring);
+			return location;
+		} finally {
+			f.appendLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the frames of the specified {@code BufferRing} to the buffer.
+	 * 
+	 * @param ring
+	 *            a {@code BufferRing}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void close(BufferRing ring) throws IOException {
+		evictionLock.lock();
+		try {
+			for (int i = 0; i < ring.frames.length; i++)
+				if (ring.frames[i] >= 0) {
+					unring(ring.frames[i]);
+					ring.frames[i] = -1;
+				}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the specified frame of a {@code BufferRing} to the buffer (the caller must hold the eviction lock). The
+	 * {@code SlottedPage} in the frame is evicted unless the frame is in use, in which case the frame is handed over to
+	 * the {@code ReplacementPolicy}.
+	 * 
+	 * @param frame
+	 *            a frame of a {@code BufferRing}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void unring(int frame) throws IOException {
+		ringed[frame] = false;
+		if (pins.get(frame) == 0 && (frames[frame] == null || evict(frame)))
+			recycle(frame);
+		else if (frames[frame] != null)
+			policy.accessed(frame);
+	}
+
+	/**
+	 * Sets the minimum and maximum numbers of frames for the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 * @param minimum
+	 *            the number of frames that the file keeps while the {@code SlottedPage}s of other files can be evicted
+	 * @param maximum
+	 *            the number of frames beyond which the file replaces its own {@code SlottedPage}s
+	 * @throws IllegalArgumentException
+	 *             if {@code 0 <= minimum <= maximum <= } the buffer size is violated or the minimums of all files add up
+	 *             to more than the buffer size
+	 */
+	public void setQuota(int fileID, int minimum, int maximum) {
+		if (minimum < 0 || minimum > maximum || maximum > BufferSize)
+			throw new IllegalArgumentException();
+		evictionLock.lock();
+		try {
+			Quota quota = quotas.get(fileID);
+			int reserved = reservedFrames - (quota == null ? 0 : quota.minimum) + minimum;
+			if (reserved > BufferSize)
+				throw new IllegalArgumentException();
+			if (quota == null) {
+				quota = new Quota();
+				boolean[] free = new boolean[frames.length];
+				for (int i = 0; i < freeFrameCount; i++)
+					free[freeFrames[i]] = true;
+				for (int i = 0; i < BufferSize; i++)
+					if (!free[i] && frameFileIDs[i] == fileID)
+						quota.frames++;
+				quotas.put(fileID, quota);
+			}
+			quota.minimum = minimum;
+			quota.maximum = maximum;
+			reservedFrames = reserved;
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the minimum and maximum numbers of frames for the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 */
+	public void removeQuota(int fileID) {
+		evictionLock.lock();
+		try {
+			Quota quota = quotas.remove(fileID);
+			if (quota != null)
+				reservedFrames -= quota.minimum;
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of frames holding {@code SlottedPage}s of the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 * @return the number of frames holding {@code SlottedPage}s of the specified file
+	 */
+	public int frameCount(int fileID) {
+		evictionLock.lock();
+		try {
+			int count = 0;
+			for (int i = 0; i < frames.length; i++)
+				if (frames[i] != null && frameFileIDs[i] == fileID)
+					count++;
+			return count;
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of frames holding {@code SlottedPage}s of each file.
+	 * 
+	 * @return a map from the ID of each file to the number of frames holding its {@code SlottedPage}s
+	 */
+	Map<Integer, Integer> frameCounts() {
+		Map<Integer, Integer> counts = new TreeMap<Integer, Integer>();
+		evictionLock.lock();
+		try {
+			for (int i = 0; i < frames.length; i++)
+				if (frames[i] != null)
+					counts.merge(frameFileIDs[i], 1, Integer::sum);
+		} finally {
+			evictionLock.unlock();
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the number of frames that are currently pinned.
+	 * 
+	 * @return the number of frames that are currently pinned
+	 */
+	int pinnedFrameCount() {
+		int count = 0;
+		for (int i = 0; i < frames.length; i++)
+			if (pins.get(i) > 0)
+				count++;
+		return count;
+	}
 
-/**
- * A {@code BufferedFileManager} manages a storage space using the slotted page format and buffering.
- * 
- * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
- */
-public class BufferedFileManager extends FileManager {
-	List<SlottedPage> Buffer;
-	int BufferSize;
-	int TmpfileID=0;
-	// TODO complete this class (10 points)
+	/**
+	 * Returns the number of frames holding dirty {@code SlottedPage}s.
+	 * 
+	 * @return the number of frames holding dirty {@code SlottedPage}s
+	 */
+	public int dirtyPageCount() {
+		return dirtyPages.get();
+	}
 
 	/**
-	 * Constructs a {@code BufferedFileManager}.
+	 * Returns the frames in use in the order in which the {@code ReplacementPolicy} would currently evict them.
 	 * 
-	 * @param bufferSize
-	 *            the number of {@code SlottedPage}s that the buffer can maintain
+	 * @return the frames in use in the order in which the {@code ReplacementPolicy} would currently evict them
+	 */
+	int[] evictionOrder() {
+		evictionLock.lock();
+		try {
+			return policy.evictionOrder();
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Is invoked when the {@code SlottedPage} in a frame becomes dirty.
+	 */
+	void dirtied() {
+		int count = dirtyPages.incrementAndGet();
+		PageCleaner c = cleaner;
+		if (c != null)
+			c.dirtied(count);
+	}
+
+	/**
+	 * Removes all data from the specified file, discarding the {@code SlottedPage}s of that file from the buffer. No
+	 * other thread may access the file meanwhile.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
 	 * @throws IOException
 	 *             if an I/O error occurs
 	 */
-	public BufferedFileManager(int bufferSize) throws IOException {
-		Buffer = new ArrayList<SlottedPage>();
-		BufferSize = bufferSize;
+	@Override
+	public void clear(int fileID) throws IOException {
+		evictionLock.lock();
+		try {
+			for (int i = 0; i < frames.length; i++) {
+				SlottedPage p = frames[i];
+				if (p != null && frameFileIDs[i] == fileID) {
+					long key = concatenate(fileID, p.pageID);
+					PageTable table = pageTable(key);
+					synchronized (table) {
+						table.remove(key);
+					}
+					policy.removed(i);
+					if (p.dirty)
+						dirtyPages.decrementAndGet();
+					frames[i] = null;
+					released(i);
+					prefetched[i] = false;
+					recycle(i);
+				}
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+		lastPageIDs.remove(fileID);
+		super.clear(fileID);
 	}
+
 	/**
-	 *  this finds the oldest item in the buffer and evicts it.  Item is returned to caller
-	 * @return  the evicted SlottedPage
+	 *  this evicts the item chosen by the replacement policy.  Its frame is returned to caller
+	 *  (the caller must hold the eviction lock). A dirty item is not saved here: its frame is pinned and
+	 *  returned as {@code -2 - frame} so that the caller can save it after releasing the eviction lock
+	 *  (see {@link #evictDirty(int, int)}).
+	 * @param evictable
+	 *            the condition that the evicted frame must satisfy
+	 * @return  the frame of the evicted SlottedPage; -1 if every frame is pinned; {@code -2 - frame} if the
+	 *          SlottedPage chosen is dirty
+	 * @throws IOException
+	 *             if an I/O error occurs
 	 */
-	SlottedPage CacheEviction()
+	int CacheEviction(IntPredicate evictable) throws IOException
 	{
-		SlottedPage Evicted =null;
-		int i=0;
-		LocalDateTime min = LocalDateTime.now();
-		int mini =-1;
-		for(; i< Buffer.size();i++)
-		{
-			if( Buffer.get(i).lastAccessed.compareTo(min)==-1)
-			{	
-				min = Buffer.get(i).lastAccessed;
-				mini = i;
+		while (true) {
+			int victim = policy.victim(evictable);
+			if (victim < 0)
+				return -1;
+			if (frames[victim].dirty) { // the pin keeps other threads from choosing the frame as a victim
+				pins.incrementAndGet(victim);
+				return -2 - victim;
 			}
+			// a thread that latched the frame after it was chosen has also pinned it, so the frame is skipped next time
+			if (evict(victim))
+				return victim;
 		}
-		Evicted = Buffer.get(mini);
-		Buffer.remove(mini);
-		return Evicted;
 	}
-	
-	
-	
+
+	/**
+	 * Saves the dirty {@code SlottedPage} in the specified frame, which the calling thread pinned while holding the
+	 * eviction lock, and then evicts it unless it has been used or modified again meanwhile. The {@code SlottedPage}
+	 * is saved without holding the eviction lock so that threads allocating other frames do not wait for the write.
+	 * 
+	 * @param victim
+	 *            a frame pinned by the calling thread
+	 * @param fileID
+	 *            the ID of the file whose {@code SlottedPage} will be held in the frame
+	 * @return the frame, which is now pinned on behalf of the caller for the specified file; {@code -1} if the
+	 *         {@code SlottedPage} could not be evicted (the frame is then unpinned)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	int evictDirty(int victim, int fileID) throws IOException {
+		boolean flushed;
+		try {
+			flushed = flush(victim, false);
+		} catch (IOException e) {
+			pins.decrementAndGet(victim);
+			throw e;
+		}
+		evictionLock.lock();
+		try {
+			pins.decrementAndGet(victim);
+			// a page dirtied again after it was saved is left in the buffer rather than saved under the eviction lock
+			if (!flushed || frames[victim] == null || !evictable.test(victim) || !evictClean(victim, true))
+				return -1;
+			claim(victim, fileID);
+			return victim;
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Pins the specified free frame on behalf of the caller and assigns it to the specified file (the caller must hold
+	 * the eviction lock).
+	 * 
+	 * @param frame
+	 *            a frame that holds no {@code SlottedPage}
+	 * @param fileID
+	 *            the ID of the file whose {@code SlottedPage} will be held in the frame
+	 */
+	void claim(int frame, int fileID) {
+		pins.incrementAndGet(frame);
+		frameFileIDs[frame] = fileID;
+		Quota quota = quotas.isEmpty() ? null : quotas.get(fileID);
+		if (quota != null)
+			quota.frames++;
+	}
+
 	/**
-	 *  Override of update.  puts most recently updated item into buffer.  Removes oldest
+	 * Evicts the {@code SlottedPage} in the specified frame after saving it if it is dirty (the caller must hold the
+	 * eviction lock). The frame is not added to the free frames.
+	 * 
+	 * @param victim
+	 *            a frame holding a {@code SlottedPage}
+	 * @return {@code true} if the {@code SlottedPage} has been evicted; {@code false} if the frame is in use
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	boolean evict(int victim) throws IOException {
+		boolean dirty = frames[victim].dirty;
+		return flush(victim, false) && evictClean(victim, dirty);
+	}
+
+	/**
+	 * Evicts the clean {@code SlottedPage} in the specified frame (the caller must hold the eviction lock). The frame
+	 * is not added to the free frames.
+	 * 
+	 * @param victim
+	 *            a frame holding a {@code SlottedPage}
+	 * @param saved
+	 *            {@code true} if the {@code SlottedPage} was dirty and has been saved for this eviction
+	 * @return {@code true} if the {@code SlottedPage} has been evicted; {@code false} if the frame is in use or the
+	 *         {@code SlottedPage} is dirty
+	 */
+	boolean evictClean(int victim, boolean saved) {
+		SlottedPage evicted = frames[victim];
+		long key = concatenate(frameFileIDs[victim], evicted.pageID);
+		PageTable table = pageTable(key);
+		synchronized (table) {
+			if (pins.get(victim) != 0 || evicted.dirty)
+				return false; // used again meanwhile
+			table.remove(key);
+		}
+		policy.removed(victim);
+		frames[victim] = null;
+		released(victim);
+		statistics.evictions.increment();
+		if (saved)
+			statistics.dirtyEvictions.increment();
+		return true;
+	}
+
+	/**
+	 * Saves the {@code SlottedPage} in the specified frame if it is dirty.
+	 * 
+	 * @param frame
+	 *            a frame
+	 * @param wait
+	 *            {@code true} to wait until the frame can be latched; {@code false} to give up if the frame is
+	 *            currently latched in exclusive mode
+	 * @return {@code true} if the {@code SlottedPage} in the frame is clean now; {@code false} if the frame could not
+	 *         be latched
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	boolean flush(int frame, boolean wait) throws IOException {
+		Lock latch = latches[frame].readLock();
+		if (wait)
+			latch.lock();
+		else if (!latch.tryLock())
+			return false;
+		try {
+			SlottedPage p = frames[frame];
+			if (p != null)
+				synchronized (p) { // other threads may also be saving the page
+					if (p.dirty) {
+						file(frameFileIDs[frame]).save(p);
+						p.dirty = false;
+						dirtyPages.decrementAndGet();
+					}
+				}
+			return true;
+		} finally {
+			latch.unlock();
+		}
+	}
+
+	/**
+	 * Returns a free frame for the specified file, evicting a {@code SlottedPage} chosen by the
+	 * {@code ReplacementPolicy} if the buffer is full. The returned frame is pinned on behalf of the caller.
+	 * 
+	 * @param fileID
+	 *            the ID of the file whose {@code SlottedPage} will be held in the frame
+	 * @return a free frame
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	int allocate(int fileID) throws IOException {
+		return allocate(fileID, true);
+	}
+
+	/**
+	 * Returns a free frame for the specified file, evicting a {@code SlottedPage} chosen by the
+	 * {@code ReplacementPolicy} if the buffer is full. The returned frame is pinned on behalf of the caller.
+	 * 
+	 * If the file holds its maximum number of frames, one of its own {@code SlottedPage}s is evicted unless all of them
+	 * are pinned. The {@code SlottedPage}s of files holding no more than their minimum numbers of frames are evicted
+	 * only if no other {@code SlottedPage} can be evicted.
+	 * 
+	 * @param fileID
+	 *            the ID of the file whose {@code SlottedPage} will be held in the frame
+	 * @param wait
+	 *            {@code true} to wait while every frame is pinned; {@code false} to give up in that case
+	 * @return a free frame; {@code -1} if every frame is pinned and {@code wait} is {@code false}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	int allocate(int fileID, boolean wait) throws IOException {
+		while (true) {
+			int frame = -1;
+			evictionLock.lock();
+			try {
+				Quota quota = quotas.isEmpty() ? null : quotas.get(fileID);
+				if (quota != null && quota.frames >= quota.maximum) // replaces a page of the same file
+					frame = CacheEviction(i -> frameFileIDs[i] == fileID && evictable.test(i));
+				if (frame == -1 && freeFrameCount > 0)
+					frame = freeFrames[--freeFrameCount];
+				if (frame == -1 && reservedFrames > 0) // spares the files holding their minimum numbers of frames
+					frame = CacheEviction(i -> evictable.test(i) && !reserved(i, fileID));
+				if (frame == -1)
+					frame = CacheEviction(evictable);
+				if (frame >= 0) {
+					claim(frame, fileID);
+					return frame;
+				}
+			} finally {
+				evictionLock.unlock();
+			}
+			if (frame < -1) { // a dirty victim is saved after the eviction lock is released
+				frame = evictDirty(-2 - frame, fileID);
+				if (frame >= 0)
+					return frame;
+				continue;
+			}
+			if (!wait)
+				return -1;
+			Thread.yield(); // every frame is pinned, so waits for other threads to release frames
+		}
+	}
+
+	/**
+	 * Returns the specified frame, which holds no {@code SlottedPage}, to the free frames and unpins it.
+	 * 
+	 * @param frame
+	 *            a frame
+	 */
+	void free(int frame) {
+		evictionLock.lock();
+		try {
+			frames[frame] = null;
+			released(frame);
+			recycle(frame);
+		} finally {
+			evictionLock.unlock();
+		}
+		pins.decrementAndGet(frame);
+	}
+
+	/**
+	 * Returns the stripe of the page table that contains the specified key.
+	 * 
+	 * @param key
+	 *            a key obtained by concatenating a file ID and a page ID
+	 * @return the stripe of the page table that contains the specified key
+	 */
+	PageTable pageTable(long key) {
+		int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+		return pageTables[h >>> stripeShift];
+	}
+
+	/**
+	 *  Override of update.  marks the item dirty and puts a new item into buffer, evicting another one if needed
 	 */
 	@Override
 	void updated(SlottedPage p, int fileID) throws IOException {
-		p.Accessed();
-		p.dirty =true;
-		//1 is in buffer
-		SlottedPage inBuf =Buffer.stream().filter(asd -> asd.pageID==p.pageID).findAny().orElse(null);
-		if(inBuf==null)//check files system
+		updated(p, fileID, null);
+	}
+
+	/**
+	 * Marks the specified {@code SlottedPage} dirty or, if it is a new {@code SlottedPage}, places it in the buffer.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param fileID
+	 *            the ID of the file containing the {@code SlottedPage}
+	 * @param ring
+	 *            the {@code BufferRing} to place a new {@code SlottedPage} in ({@code null} to use the whole buffer)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void updated(SlottedPage p, int fileID, BufferRing ring) throws IOException {
+		if(p.frame >= 0 && frames[p.frame] == p)
 		{
-			// check if in file system
-			SlottedPageFile f = file(fileID);
-			if(f.get(p.pageID)==null)
+			// the page was obtained from the buffer (and is latched in exclusive mode)
+			if(!p.dirty)
 			{
-				f.save(p);
+				p.dirty =true;
+				dirtied();
 			}
-			if(Buffer.size()<BufferSize	 )
-			{
-				Buffer.add(p);
-			}else {
-			SlottedPage evicted = CacheEviction();
-			
-			if(evicted.dirty)
-			{
-				//updated(evicted,0);
-				SlottedPageFile fout = file(fileID);
-				fout.save(evicted);
-				evicted.dirty =false;
-			}
-			Buffer.add(p);
+			return;
+		}
+		p.dirty =true;
+		long key = concatenate(fileID, p.pageID);
+		PageTable table = pageTable(key);
+		// a new page is saved right away so that the file covers it
+		SlottedPageFile f = file(fileID);
+		if (views != null && p.size > frameSize)
+			throw new IOException("pages of " + p.size + " bytes do not fit in frames of " + frameSize + " bytes");
+		if(p.pageID >= f.size())
+		{
+			f.save(p);
+		}
+		int frame = ring == null ? allocate(fileID) : allocate(fileID, ring);
+		if (views != null) { // the page is copied into the frame
+			Lock latch = latches[frame].writeLock();
+			latch.lock();
+			try {
+				views[frame].copy(p);
+			} finally {
+				latch.unlock();
 			}
+			p = views[frame];
 		}
+		p.frame = frame;
+		p.dirty = true;
+		prefetched[frame] = false;
+		frames[frame] = p;
+		int old;
+		synchronized (table) {
+			old = table.remove(key); // a stale copy of the page, if any, is replaced
+			table.put(key, frame);
+		}
+		dirtied();
+		if (old >= 0)
+			discard(old);
+		if (ring == null)
+			policy.accessed(frame);
+		pins.decrementAndGet(frame);
 	}
-	
+
+	/**
+	 * Frees the specified frame, which is no longer in the page table. A thread still using the frame keeps its pin and
+	 * latch, so the frame cannot be reloaded before that thread releases it.
+	 * 
+	 * @param frame
+	 *            a frame
+	 */
+	void discard(int frame) {
+		evictionLock.lock();
+		try {
+			policy.removed(frame);
+			if (frames[frame] != null && frames[frame].dirty)
+				dirtyPages.decrementAndGet();
+			frames[frame] = null;
+			released(frame);
+			recycle(frame);
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the specified frame to the free frames unless the frame is being removed from the buffer or belongs to a
+	 * {@code BufferRing} (the caller must hold the eviction lock).
+	 * 
+	 * @param frame
+	 *            a frame that holds no {@code SlottedPage}
+	 */
+	void recycle(int frame) {
+		if (frame < BufferSize && !ringed[frame])
+			freeFrames[freeFrameCount++] = frame;
+	}
+
+	/**
+	 * Records that the specified frame no longer holds a {@code SlottedPage} of the file that it was allocated for (the
+	 * caller must hold the eviction lock).
+	 * 
+	 * @param frame
+	 *            a frame
+	 */
+	void released(int frame) {
+		if (quotas.isEmpty())
+			return;
+		Quota quota = quotas.get(frameFileIDs[frame]);
+		if (quota != null)
+			quota.frames--;
+	}
+
+	/**
+	 * Determines whether or not the specified frame belongs to another file that holds no more than its minimum number
+	 * of frames (the caller must hold the eviction lock).
+	 * 
+	 * @param frame
+	 *            a frame
+	 * @param fileID
+	 *            the ID of the file for which a frame is being allocated
+	 * @return {@code true} if the specified frame must be spared; {@code false} otherwise
+	 */
+	boolean reserved(int frame, int fileID) {
+		int owner = frameFileIDs[frame];
+		if (owner == fileID)
+			return false;
+		Quota quota = quotas.get(owner);
+		return quota != null && quota.frames <= quota.minimum;
+	}
+
 	/**
 	 * Returns an iterator over all objects stored in the the specified file.
 	 * 
@@ -106,54 +1352,329 @@ public class BufferedFileManager extends FileManager {
 		
 		return new BufferedFileIterator(fileID);
 	}
-	
+
+	/**
+	 * Returns a read-only copy of the specified {@code ByteBuffer} since the frame whose memory it shares may hold
+	 * another {@code SlottedPage} once it is unpinned. To read the bytes of an object without copying them, use
+	 * {@link #getRaw(int, Long, java.util.function.Function)}, which keeps the frame pinned while the bytes are read.
+	 */
+	@Override
+	ByteBuffer detach(ByteBuffer b) {
+		ByteBuffer copy = ByteBuffer.allocate(b.remaining());
+		copy.put(b.duplicate());
+		copy.flip();
+		return copy.asReadOnlyBuffer();
+	}
+
 	
 	
 	@Override
-	SlottedPage page(int fileID, int pageID) throws IOException {
-		// 1 find page in buffer
-		fileID =TmpfileID;
-		SlottedPage rv ;
-		SlottedPage inBuf =Buffer.stream().filter(asd -> asd.pageID==pageID).findAny().orElse(null);
-		if(inBuf!=null)
-		{
-			rv = inBuf;
+	SlottedPage page(int fileID, int pageID, boolean exclusive) throws IOException {
+		return page(fileID, pageID, exclusive, null);
+	}
+
+	/**
+	 * Returns the specified {@code SlottedPage} pinned and latched in the specified mode, loading it into the buffer
+	 * if needed.
+	 * 
+	 * @param fileID
+	 *            the ID of the file containing the {@code SlottedPage}
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @param exclusive
+	 *            {@code true} to latch the {@code SlottedPage} in exclusive mode; {@code false} for shared mode
+	 * @param ring
+	 *            the {@code BufferRing} to load the {@code SlottedPage} into ({@code null} to use the whole buffer)
+	 * @return the specified {@code SlottedPage}; {@code null} if no such {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	SlottedPage page(int fileID, int pageID, boolean exclusive, BufferRing ring) throws IOException {
+		long key = concatenate(fileID, pageID);
+		PageTable table = pageTable(key);
+		if (ring == null && readAheadDepth > 0 && pageID >= 0)
+			readAhead(fileID, pageID);
+		while (true) {
+			// 1 find page in buffer
+			int frame;
+			synchronized (table) {
+				frame = table.get(key);
+				if (frame >= 0)
+					pins.incrementAndGet(frame);
+			}
+			if (frame >= 0)
+				statistics.hit(fileID);
+			else {
+				if (pageID < 0 || pageID >= size(fileID))
+					return null;
+				statistics.miss(fileID);
+				frame = load(fileID, pageID, ring);
+				if (frame < 0)
+					return null;
+			}
+			Lock latch = exclusive ? latches[frame].writeLock() : latches[frame].readLock();
+			latch.lock();
+			SlottedPage rv = frames[frame];
+			if (rv != null && rv.pageID == pageID && frameFileIDs[frame] == fileID) {
+				if (prefetched[frame]) {
+					prefetched[frame] = false;
+					statistics.readAheadHits.increment();
+				}
+				if (ring == null && !ringed[frame])
+					policy.accessed(frame);
+				return rv;
+			}
+			// the frame was reused before the latch was acquired
+			latch.unlock();
+			pins.decrementAndGet(frame);
 		}
-		else 
-		{
-			SlottedPageFile f = file(fileID);
-			rv = f.get(pageID);
-			// if buffer isn't full add
-			rv.dirty =false;  // this is because it was just loaded.
-			if(Buffer.size() <BufferSize)
-			{
-				Buffer.add(rv);
-			}else
-			{
-				// do eviction
-				SlottedPage evicted = CacheEviction();
-				
-				if(evicted.dirty)
-				{
-					//updated(evicted,0);
-					SlottedPageFile fout = file(fileID);
-					fout.save(evicted);
+	}
+
+	/**
+	 * Loads the specified {@code SlottedPage} into a frame unless another thread has done so. The frame is
+	 * published in the page table before the {@code SlottedPage} is read, and remains latched in exclusive mode until
+	 * the read completes, so that no two threads read the same {@code SlottedPage}.
+	 * 
+	 * @param fileID
+	 *            the ID of the file containing the {@code SlottedPage}
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @param ring
+	 *            the {@code BufferRing} to load the {@code SlottedPage} into ({@code null} to use the whole buffer)
+	 * @return the frame (pinned) containing the {@code SlottedPage}; {@code -1} if no such {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	int load(int fileID, int pageID, BufferRing ring) throws IOException {
+		long key = concatenate(fileID, pageID);
+		PageTable table = pageTable(key);
+		int frame = ring == null ? allocate(fileID) : allocate(fileID, ring);
+		Lock latch = latches[frame].writeLock();
+		latch.lock();
+		int existing;
+		synchronized (table) {
+			existing = table.get(key);
+			if (existing >= 0)
+				pins.incrementAndGet(existing);
+			else
+				table.put(key, frame);
+		}
+		if (existing >= 0) {
+			latch.unlock();
+			free(frame);
+			return existing;
+		}
+		SlottedPage p = null;
+		try {
+			if (views == null)
+				p = file(fileID).get(pageID);
+			else { // the page is read into the frame
+				views[frame].pageID = pageID;
+				if (file(fileID).load(views[frame]))
+					p = views[frame];
+			}
+			if (p != null) {
+				p.dirty = false; // this is because it was just loaded.
+				p.frame = frame;
+				prefetched[frame] = false;
+				frames[frame] = p;
+				if (ring == null)
+					policy.accessed(frame);
+			}
+		} finally {
+			if (p == null) {
+				synchronized (table) {
+					table.remove(key);
 				}
-				Buffer.add(rv);
 			}
-			
-			
+			latch.unlock();
+			if (p == null)
+				free(frame);
+		}
+		return p == null ? -1 : frame;
+	}
+
+	/**
+	 * Reads pages ahead if the specified page immediately follows the page accessed last in the same file. In the
+	 * foreground mode, the run of pages starting at the specified page is read if that page is not in the buffer. In the
+	 * background mode, the run of pages following the specified page is read by the background thread.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 * @param pageID
+	 *            the ID of the page being accessed
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void readAhead(int fileID, int pageID) throws IOException {
+		AtomicInteger last = lastPageIDs.get(fileID);
+		if (last == null)
+			last = lastPageIDs.computeIfAbsent(fileID, id -> new AtomicInteger(-2));
+		if (last.getAndSet(pageID) != pageID - 1)
+			return; // not sequential
+		ExecutorService executor = readAheadExecutor;
+		int depth = readAheadDepth;
+		if (executor == null) {
+			if (!contains(fileID, pageID))
+				prefetch(fileID, pageID, depth);
+		} else if (!contains(fileID, pageID + 1))
+			executor.execute(() -> {
+				try {
+					prefetch(fileID, pageID + 1, depth);
+				} catch (IOException e) {
+					statistics.readAheadFailures.increment(); // the pages are read again when requested
+				}
+			});
+	}
+
+	/**
+	 * Determines whether or not the specified page is in the buffer.
+	 * 
+	 * @param fileID
+	 *            the ID of the file containing the page
+	 * @param pageID
+	 *            the ID of the page
+	 * @return {@code true} if the specified page is in the buffer; {@code false} otherwise
+	 */
+	boolean contains(int fileID, int pageID) {
+		long key = concatenate(fileID, pageID);
+		PageTable table = pageTable(key);
+		synchronized (table) {
+			return table.get(key) >= 0;
+		}
+	}
+
+	/**
+	 * Reads the specified run of pages with a single read and places the pages that are not in the buffer yet into
+	 * the buffer. As in {@link #load(int, int)}, a frame is published and latched in exclusive mode for each of those
+	 * pages before the read so that no other thread can load or update the page meanwhile.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 * @param pageID
+	 *            the ID of the first page to read
+	 * @param count
+	 *            the number of pages to read
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void prefetch(int fileID, int pageID, int count) throws IOException {
+		SlottedPageFile f = file(fileID);
+		int pageSize = f.pageSize();
+		count = Math.min(count, f.size() - pageID);
+		if (count <= 0 || views != null && pageSize > frameSize)
+			return;
+		int[] reserved = new int[count];
+		for (int i = 0; i < count; i++) {
+			reserved[i] = -1;
+			long key = concatenate(fileID, pageID + i);
+			PageTable table = pageTable(key);
+			synchronized (table) {
+				if (table.get(key) >= 0)
+					continue; // already in the buffer
+			}
+			int frame = allocate(fileID, false);
+			if (frame < 0)
+				break; // no frame to spare
+			latches[frame].writeLock().lock();
+			boolean published;
+			synchronized (table) {
+				published = table.get(key) < 0;
+				if (published)
+					table.put(key, frame);
+			}
+			if (published)
+				reserved[i] = frame;
+			else {
+				latches[frame].writeLock().unlock();
+				free(frame);
+			}
+		}
+		byte[] b = new byte[count * pageSize];
+		int read = 0;
+		try {
+			read = f.read(pageID, b);
+		} finally {
+			for (int i = 0; i < count; i++) {
+				int frame = reserved[i];
+				if (frame < 0)
+					continue;
+				SlottedPage p = null;
+				if (i < read) {
+					p = views == null ? f.newPage(pageID + i) : views[frame];
+					p.pageID = pageID + i;
+					p.size = pageSize;
+					p.copy(b, i * pageSize);
+					p.codec = f.codec;
+					p.layout = f.layout;
+					p.dense = f.dense;
+					p.dirty = false;
+					p.frame = frame;
+					prefetched[frame] = true;
+					frames[frame] = p;
+					policy.accessed(frame);
+					statistics.readAheadPages.increment();
+				} else {
+					long key = concatenate(fileID, pageID + i);
+					PageTable table = pageTable(key);
+					synchronized (table) {
+						table.remove(key);
+					}
+				}
+				latches[frame].writeLock().unlock();
+				if (p == null)
+					free(frame);
+				else
+					pins.decrementAndGet(frame);
+			}
 		}
-		rv.Accessed();
-		return rv;
+	}
+
+	/**
+	 * Unlatches and unpins the specified {@code SlottedPage}.
+	 */
+	@Override
+	void release(SlottedPage p, int fileID, boolean exclusive) {
+		int frame = p.frame;
+		if (frame < 0)
+			return; // a page that has never been in the buffer
+		if (exclusive)
+			latches[frame].writeLock().unlock();
+		else
+			latches[frame].readLock().unlock();
+		pins.decrementAndGet(frame);
+	}
+
+	/**
+	 * A {@code Quota} specifies the minimum and maximum numbers of frames for a file and counts the frames allocated for
+	 * the file.
+	 */
+	static class Quota {
+
+		/**
+		 * The minimum number of frames.
+		 */
+		int minimum;
+
+		/**
+		 * The maximum number of frames.
+		 */
+		int maximum;
+
+		/**
+		 * The number of frames currently allocated for the file.
+		 */
+		int frames;
+
 	}
 	class BufferedFileIterator implements Iterator<Object>{
 		int maxpginBuffer()
 		{
 			int mx =-99;
-			for( SlottedPage p : Buffer) 
+			for(int i = 0; i < frames.length; i++)
 			{
-				if(p.pageID>mx)
+				SlottedPage p = frames[i];
+				if(p != null && frameFileIDs[i] == FileID && p.pageID>mx)
 				{
 					mx =p.pageID;
 					
@@ -169,18 +1690,24 @@ public class BufferedFileManager extends FileManager {
 		
 		
 		int spSize=0;
-		int currPg=0;
+		int currPg=-1; // the first page is loaded by hasNext
 		int LastPageID;
 		int FileID;
 		SlottedPage currSP;
 		Iterator <Object>spi;
+		BufferRing ring;
+		SlottedPage copy; // the frame may be reused once the page is released, so its objects are read from a copy
 		BufferedFileIterator(int FileID)
+		{
+			this(FileID, null);
+		}
+		BufferedFileIterator(int FileID, BufferRing ring)
 		{
 			this.FileID = FileID;
+			this.ring = ring;
 			try 
 			{
 			 	spSize = size(FileID);				
-				currSP = page(FileID,0);
 				int mxbuf = maxpginBuffer();
 				if( (spSize-1) >mxbuf)
 				{
@@ -192,8 +1719,7 @@ public class BufferedFileManager extends FileManager {
 				}
 			
 			} catch (IOException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+				throw new UncheckedIOException(e);
 			}
 			
 		}
@@ -201,35 +1727,29 @@ public class BufferedFileManager extends FileManager {
 		public boolean hasNext() {
 			// TODO Auto-generated method stub
 			boolean retval = false;
-			if( currSP ==null ) 
-			{
-				return false;
-			}
-			if( spi==null)
-			{
-				spi = currSP.iterator();
-			}
-			if(spi.hasNext()) 
+			if(spi != null && spi.hasNext()) 
 			{
 				retval =true;
 			}
 			else
 			{				
-				++currPg;
-				if( currPg<=LastPageID)
+				// pages without objects (e.g., overflow pages) are skipped
+				while( !retval && ++currPg<=LastPageID)
 				{
 					try {
-						currSP = page(FileID,currPg);
-						spi = currSP.iterator();
-						if(currSP!=null && spi!=null && spi.hasNext()) 
-						{
-							retval =true;
-						}
-					} catch (Exception e) {
-						// TODO Auto-generated catch block
-						retval =false;
+						currSP = page(FileID,currPg,false,ring);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
 					}
-					
+					if (currSP == null)
+						continue;
+					try {
+						copy = currSP.copyInto(copy);
+					} finally {
+						release(currSP, FileID, false);
+					}
+					spi = copy.iterator();
+					retval = spi.hasNext();
 				}
 			}	
 			return retval;
@@ -243,7 +1763,11 @@ public class BufferedFileManager extends FileManager {
 			 {
 				 throw new NoSuchElementException();
 			 }
-			 return spi.next();
+			 try {
+				 return resolve(FileID, spi.next());
+			 } catch (IOException e) {
+				 throw new UncheckedIOException(e);
+			 }
 		}
 	}
 
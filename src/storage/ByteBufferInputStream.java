@@ -0,0 +1,78 @@
+package storage;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@code ByteBufferInputStream} reads bytes from a region of a {@code ByteBuffer} without copying the region and
+ * without changing the position of the {@code ByteBuffer}.
+ */
+class ByteBufferInputStream extends InputStream {
+
+	/**
+	 * The {@code ByteBuffer} to read from.
+	 */
+	ByteBuffer buffer;
+
+	/**
+	 * The index of the next byte to read.
+	 */
+	int position;
+
+	/**
+	 * The index immediately after the last byte to read.
+	 */
+	int limit;
+
+	/**
+	 * Constructs a {@code ByteBufferInputStream}.
+	 * 
+	 * @param buffer
+	 *            a {@code ByteBuffer}
+	 * @param offset
+	 *            the index of the first byte to read
+	 * @param length
+	 *            the number of bytes that can be read
+	 */
+	ByteBufferInputStream(ByteBuffer buffer, int offset, int length) {
+		this.buffer = buffer;
+		this.position = offset;
+		this.limit = offset + length;
+	}
+
+	@Override
+	public int read() {
+		return position < limit ? buffer.get(position++) & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0)
+			return 0;
+		int n = Math.min(len, limit - position);
+		if (n <= 0)
+			return -1;
+		if (buffer.hasArray())
+			System.arraycopy(buffer.array(), buffer.arrayOffset() + position, b, off, n);
+		else {
+			ByteBuffer d = buffer.duplicate();
+			d.position(position);
+			d.get(b, off, n);
+		}
+		position += n;
+		return n;
+	}
+
+	@Override
+	public long skip(long n) {
+		int skipped = (int) Math.max(0, Math.min(n, limit - position));
+		position += skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return limit - position;
+	}
+
+}
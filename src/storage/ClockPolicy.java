@@ -0,0 +1,79 @@
+package storage;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A {@code ClockPolicy} is a {@code ReplacementPolicy} that implements the CLOCK (second-chance) algorithm. Each
+ * access only sets the reference bit of a frame, and a clock hand sweeping over the frames clears reference bits until
+ * it finds a frame whose bit is already clear. Since an access writes nothing but a reference bit, concurrent accesses
+ * need no synchronization (a lost update merely costs a frame its second chance).
+ */
+public class ClockPolicy implements ReplacementPolicy {
+
+	/**
+	 * The reference bit of each frame.
+	 */
+	boolean[] referenced = new boolean[0];
+
+	/**
+	 * A flag for each frame indicating whether or not that frame is in use.
+	 */
+	boolean[] used = new boolean[0];
+
+	/**
+	 * The position of the clock hand.
+	 */
+	int hand = 0;
+
+	@Override
+	public void resize(int frames) {
+		referenced = new boolean[frames];
+		used = new boolean[frames];
+		hand = 0;
+	}
+
+	@Override
+	public void accessed(int frame) {
+		referenced[frame] = true;
+		used[frame] = true;
+	}
+
+	@Override
+	public void removed(int frame) {
+		referenced[frame] = false;
+		used[frame] = false;
+	}
+
+	@Override
+	public int victim(IntPredicate evictable) {
+		int frames = used.length;
+		// after one full sweep every reference bit is clear, so two sweeps always suffice
+		for (int i = 0; i < 2 * frames; i++) {
+			int frame = hand;
+			hand = (hand + 1) % frames;
+			if (used[frame] && evictable.test(frame)) {
+				if (!referenced[frame])
+					return frame;
+				referenced[frame] = false;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int[] evictionOrder() {
+		int frames = used.length;
+		int[] order = new int[frames];
+		int count = 0;
+		// the hand first takes the frames whose reference bits are clear and then, in its second sweep, the others
+		for (int pass = 0; pass < 2; pass++)
+			for (int i = 0; i < frames; i++) {
+				int frame = (hand + i) % frames;
+				if (used[frame] && referenced[frame] == (pass == 1))
+					order[count++] = frame;
+			}
+		return Arrays.copyOf(order, count);
+	}
+
+}
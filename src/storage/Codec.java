@@ -0,0 +1,57 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@code Codec} converts objects into the bytes stored in {@code SlottedPage}s and back. The bytes produced for an
+ * object must be decodable without knowing their length in advance and must not start with {@code 0xFE}, which marks
+ * the pointers to objects stored in overflow pages. A {@code Codec} is used by many threads at once and thus must be
+ * stateless or thread-safe.
+ */
+public interface Codec {
+
+	/**
+	 * Returns a byte array representing the specified object.
+	 * 
+	 * @param o
+	 *            an object
+	 * @return a byte array representing the specified object
+	 * @throws IOException
+	 *             if the object cannot be encoded
+	 */
+	byte[] encode(Object o) throws IOException;
+
+	/**
+	 * Returns an object created from the bytes at the specified offset in the specified {@code ByteBuffer}. The
+	 * position of the {@code ByteBuffer} is not changed.
+	 * 
+	 * @param b
+	 *            a {@code ByteBuffer}
+	 * @param offset
+	 *            the offset in the {@code ByteBuffer} of the first byte to read
+	 * @param length
+	 *            the number of bytes that can be read at most
+	 * @return an object created from the specified bytes
+	 * @throws IOException
+	 *             if the bytes cannot be decoded
+	 */
+	Object decode(ByteBuffer b, int offset, int length) throws IOException;
+
+	/**
+	 * Returns the number of bytes that represent the object at the specified offset in the specified
+	 * {@code ByteBuffer}. The position of the {@code ByteBuffer} is not changed.
+	 * 
+	 * @param b
+	 *            a {@code ByteBuffer}
+	 * @param offset
+	 *            the offset in the {@code ByteBuffer} of the first byte of the object
+	 * @param length
+	 *            the number of bytes that can be read at most
+	 * @return the number of bytes that represent the object
+	 * @throws IOException
+	 *             if the bytes cannot be decoded
+	 */
+	int length(ByteBuffer b, int offset, int length) throws IOException;
+
+}
@@ -1,11 +1,21 @@
 package storage;
 
+import java.io.DataInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
 
 
 import storage.SlottedPage.IndexOutOfBoundsException;
@@ -15,6 +25,26 @@ import storage.SlottedPage.OverflowException;
 /**
  * A {@code FileManager} manages a storage space using the slotted page format.
  * 
+ * The objects in each file are converted into bytes and back by a {@code Codec}. Unless configured otherwise (see
+ * {@link #setCodec(Codec)} and {@link #setCodec(int, Codec)}), a {@code BinaryCodec} is used.
+ * 
+ * Each file has its own page size, which is stored in the file and chosen when the file is created (see
+ * {@link #setPageSize(int)} and {@link #setPageSize(int, int)}), so files with different page sizes can be managed
+ * together. Likewise, the {@code SlottedPage}s of each file may be compressed on disk (see
+ * {@link #setCompression(boolean)} and {@link #setCompression(int, boolean)}) and may have dense slots, which take 2
+ * bytes each instead of 4 (see {@link #setDenseSlots(boolean)} and {@link #setDenseSlots(int, boolean)}).
+ * 
+ * A file of records with a fixed schema can store them column by column (see {@link #setLayout(int, PaxLayout)}), so
+ * that iterating over a single field (see {@link #iterator(int, int)}) reads only the values of that field. A file
+ * with the {@code PaxLayout} {@link PaxLayout#LONGS} or {@link PaxLayout#INTS} is an array of raw {@code long} or
+ * {@code int} values, which can be added, read, and scanned without boxing them (e.g., {@link #addLong(int, long)},
+ * {@link #getLong(int, long)}, and {@link #iterateLongs(int, LongConsumer)}).
+ * 
+ * An object too large for an empty {@code SlottedPage} is stored in a chain of overflow pages appended to its file,
+ * and its slot holds a small pointer to that chain. Such an object is reassembled when it is read, or can be read
+ * through an {@code InputStream} holding one page at a time (see {@link #getStream(int, Long)}). The overflow pages
+ * of a removed object are not reused.
+ * 
  * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
  */
 public class FileManager implements StorageManager<Long, Object> {
@@ -22,7 +52,27 @@ public class FileManager implements StorageManager<Long, Object> {
 	/**
 	 * A map that associates the ID of each file with a {@code SlottedPageFile} for accessing that file.
 	 */
-	Map<Integer, SlottedPageFile> id2file = new HashMap<Integer, SlottedPageFile>();
+	Map<Integer, SlottedPageFile> id2file = new ConcurrentHashMap<Integer, SlottedPageFile>();
+
+	/**
+	 * The {@code Codec} given to the files opened from now on.
+	 */
+	volatile Codec codec = new BinaryCodec();
+
+	/**
+	 * The page size given to the files created from now on.
+	 */
+	volatile int pageSize = SlottedPage.SIZE;
+
+	/**
+	 * A flag indicating whether or not the {@code SlottedPage}s of the files created from now on are compressed.
+	 */
+	volatile boolean compressed = false;
+
+	/**
+	 * A flag indicating whether or not the {@code SlottedPage}s of the files created from now on have dense slots.
+	 */
+	volatile boolean dense = false;
 
 	/**
 	 * Returns the first location in any file.
@@ -45,13 +95,159 @@ public class FileManager implements StorageManager<Long, Object> {
 			f.close(); // closes each data file
 	}
 
+	/**
+	 * Sets the {@code Codec} for the files opened from now on.
+	 * 
+	 * @param codec
+	 *            a {@code Codec}
+	 */
+	public void setCodec(Codec codec) {
+		this.codec = codec;
+	}
+
+	/**
+	 * Sets the {@code Codec} for the specified file. The {@code Codec} must be able to read the objects already stored
+	 * in the file.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 * @param codec
+	 *            a {@code Codec}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void setCodec(int fileID, Codec codec) throws IOException {
+		file(fileID).setCodec(codec);
+	}
+
+	/**
+	 * Sets whether or not the {@code SlottedPage}s of the files created from now on have dense slots (see
+	 * {@link SlottedPageFile#setDenseSlots(boolean)}). Existing files keep the format stored in them, and files whose
+	 * pages are larger than {@link SlottedPage#MAX_DENSE_SIZE} bytes are created without dense slots.
+	 * 
+	 * @param dense
+	 *            {@code true} if the {@code SlottedPage}s have dense slots; {@code false} otherwise
+	 */
+	public void setDenseSlots(boolean dense) {
+		this.dense = dense;
+	}
+
+	/**
+	 * Sets whether or not the {@code SlottedPage}s of the specified file, which must be empty (e.g., right after
+	 * {@link #clear(int)}), have dense slots.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 * @param dense
+	 *            {@code true} if the {@code SlottedPage}s have dense slots; {@code false} otherwise
+	 * @throws IllegalStateException
+	 *             if the file is not empty
+	 * @throws IllegalArgumentException
+	 *             if the {@code SlottedPage}s of the file are larger than {@link SlottedPage#MAX_DENSE_SIZE} bytes
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void setDenseSlots(int fileID, boolean dense) throws IOException {
+		file(fileID).setDenseSlots(dense);
+	}
+
+	/**
+	 * Sets the {@code PaxLayout} of the specified file, whose objects are then records (arrays of {@code Object}s) that
+	 * match the schema of the {@code PaxLayout}. The {@code PaxLayout} is stored in the header of the file, so it is
+	 * restored when the file is opened again, and cannot be changed once the file contains pages.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 * @param layout
+	 *            a {@code PaxLayout} ({@code null} to store objects in slots)
+	 * @throws IllegalStateException
+	 *             if the file is not empty and the {@code PaxLayout} differs from that of the file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void setLayout(int fileID, PaxLayout layout) throws IOException {
+		file(fileID).setLayout(layout);
+	}
+
+	/**
+	 * Sets the page size for the files created from now on. Existing files keep the page size stored in them.
+	 * 
+	 * @param pageSize
+	 *            the size of the {@code SlottedPage}s in bytes
+	 * @throws IllegalArgumentException
+	 *             if the page size is invalid (see {@link SlottedPage#checkSize(int)})
+	 */
+	public void setPageSize(int pageSize) {
+		this.pageSize = SlottedPage.checkSize(pageSize);
+	}
+
+	/**
+	 * Sets the page size of the specified file, which must be empty (e.g., right after {@link #clear(int)}).
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 * @param pageSize
+	 *            the size of the {@code SlottedPage}s in bytes
+	 * @throws IllegalStateException
+	 *             if the file is not empty
+	 * @throws IllegalArgumentException
+	 *             if the page size is invalid (see {@link SlottedPage#checkSize(int)})
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void setPageSize(int fileID, int pageSize) throws IOException {
+		file(fileID).setPageSize(pageSize);
+	}
+
+	/**
+	 * Returns the page size of the specified file.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 * @return the size of the {@code SlottedPage}s in the specified file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public int pageSize(int fileID) throws IOException {
+		return file(fileID).pageSize();
+	}
+
+	/**
+	 * Sets whether or not the {@code SlottedPage}s of the files created from now on are compressed. Existing files
+	 * keep the format stored in them.
+	 * 
+	 * @param compressed
+	 *            {@code true} if the {@code SlottedPage}s are compressed; {@code false} otherwise
+	 */
+	public void setCompression(boolean compressed) {
+		this.compressed = compressed;
+	}
+
+	/**
+	 * Sets whether or not the {@code SlottedPage}s of the specified file, which must be empty (e.g., right after
+	 * {@link #clear(int)}), are compressed.
+	 * 
+	 * @param fileID
+	 *            the ID of a file
+	 * @param compressed
+	 *            {@code true} if the {@code SlottedPage}s are compressed; {@code false} otherwise
+	 * @throws IllegalStateException
+	 *             if the file is not empty
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void setCompression(int fileID, boolean compressed) throws IOException {
+		file(fileID).setCompression(compressed);
+	}
+
 	@Override
 	public String toString() {
 		return id2file.values().toString();
 	}
 
 	/**
-	 * Adds the specified object at the end of the specified file.
+	 * Adds the specified object at the end of the specified file. An object that does not fit in an empty
+	 * {@code SlottedPage} is stored in a chain of overflow pages (see {@link #addOverflow(int, Object)}).
 	 * 
 	 * @param fileID
 	 *            the ID of the file
@@ -63,31 +259,407 @@ public class FileManager implements StorageManager<Long, Object> {
 	 */
 	@Override
 	public Long add(int fileID, Object o) throws IOException {
-		int size = size(fileID); // the number of pages in the data file
-		SlottedPage p;
-		long location;
+		SlottedPageFile f = file(fileID);
+		f.appendLock.lock(); // only one thread at a time can append objects to the file
 		try {
-			if (size == 0) { // if no page yet
-				p = new SlottedPage(0); // create page 0
-				location = concatenate(p.pageID(), p.add(o)); // add the object in the page
-			} else { // existing page
-				p = page(fileID, size - 1); // get last page
+			int size = size(fileID); // the number of pages in the data file
+			if (size > 0) { // existing page
+				SlottedPage p = page(fileID, size - 1, true); // get last page
 				try {
-					location = concatenate(p.pageID(), p.add(o)); // add the object in the page
+					long location = concatenate(p.pageID(), p.add(o)); // add the object in the page
+					updated(p, fileID); // inform that the page is updated
+					return location;
 				} catch (OverflowException e) { // if the object cannot fit into the page
-					p = new SlottedPage(p.pageID() + 1); // create a new page
-					location = concatenate(p.pageID(), p.add(o)); // add the object in the new page
+				} finally {
+					release(p, fileID, true);
 				}
 			}
+			SlottedPage p = f.newPage(size); // create a new page
+			long location;
+			try {
+				location = concatenate(p.pageID(), p.add(o)); // add the object in the new page
+			} catch (OverflowException e) { // if the object cannot fit into any page
+				return addOverflow(fileID, o);
+			}
+			updated(p, fileID); // inform that the page is updated (and thus the page will eventually be saved in the file)
+			return location; // return the location of the object
+		} finally {
+			f.appendLock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the specified objects at the end of the specified file. As many objects as fit are added in each
+	 * {@code SlottedPage} before it is updated, so each {@code SlottedPage} is saved (or marked dirty) once rather
+	 * than once per object. The objects are placed exactly as by adding them one at a time.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param objects
+	 *            the objects to add
+	 * @return the locations of the objects in the specified file, in the order of the objects
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	@Override
+	public List<Long> addAll(int fileID, Iterable<? extends Object> objects) throws IOException {
+		List<Object> list = new ArrayList<Object>();
+		objects.forEach(list::add);
+		List<Long> locations = new ArrayList<Long>(list.size());
+		SlottedPageFile f = file(fileID);
+		f.appendLock.lock(); // only one thread at a time can append objects to the file
+		try {
+			int size = size(fileID);
+			int i = addAllToLast(fileID, size, list, 0, locations);
+			while (i < list.size()) {
+				SlottedPage p = f.newPage(size);
+				int next = addAll(p, list, i, locations);
+				if (next == i) { // the object cannot fit into any page
+					locations.add(addOverflow(fileID, list.get(i++)));
+					size = size(fileID);
+					// the pointer may have been stored in a new page after the chain
+					i = addAllToLast(fileID, size, list, i, locations);
+					continue;
+				}
+				i = next;
+				updated(p, fileID);
+				size++;
+			}
+			return locations;
+		} finally {
+			f.appendLock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the specified objects in the last page of the specified file, starting from the object at the specified
+	 * position and stopping at the first object that does not fit.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param size
+	 *            the number of pages in the file
+	 * @param objects
+	 *            the objects to add
+	 * @param from
+	 *            the position of the first object to add
+	 * @param locations
+	 *            the list to which the locations of the added objects are appended
+	 * @return the position of the first object that has not been added
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	int addAllToLast(int fileID, int size, List<Object> objects, int from, List<Long> locations) throws IOException {
+		if (size == 0)
+			return from;
+		SlottedPage p = page(fileID, size - 1, true);
+		try {
+			int next = addAll(p, objects, from, locations);
+			if (next > from)
+				updated(p, fileID);
+			return next;
+		} finally {
+			release(p, fileID, true);
+		}
+	}
+
+	/**
+	 * Adds the specified objects in the specified {@code SlottedPage}, starting from the object at the specified
+	 * position and stopping at the first object that does not fit, and appends the locations of the added objects to
+	 * the specified list.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param objects
+	 *            a list of objects
+	 * @param from
+	 *            the position in the list of the first object to add
+	 * @param locations
+	 *            the list of locations to append to
+	 * @return the position in the list of the first object not added
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	int addAll(SlottedPage p, List<Object> objects, int from, List<Long> locations) throws IOException {
+		int index = p.entryCount();
+		int end = p.addAll(objects, from);
+		for (int i = from; i < end; i++)
+			locations.add(concatenate(p.pageID(), index++));
+		return end;
+	}
+
+	/**
+	 * Adds the specified {@code long} value at the end of the specified file, whose {@code PaxLayout} must be
+	 * {@link PaxLayout#LONGS}, without boxing it.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param value
+	 *            the value to add
+	 * @return the location of the value in the specified file
+	 * @throws IllegalStateException
+	 *             if the file does not store {@code long} values
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public long addLong(int fileID, long value) throws IOException {
+		return append(fileID, PaxLayout.Type.LONG, value);
+	}
+
+	/**
+	 * Adds the specified {@code int} value at the end of the specified file, whose {@code PaxLayout} must be
+	 * {@link PaxLayout#INTS}, without boxing it.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param value
+	 *            the value to add
+	 * @return the location of the value in the specified file
+	 * @throws IllegalStateException
+	 *             if the file does not store {@code int} values
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public long addInt(int fileID, int value) throws IOException {
+		return append(fileID, PaxLayout.Type.INT, value);
+	}
+
+	/**
+	 * Adds the specified value at the end of the specified file, which must store values of the specified type.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param type
+	 *            the type of the values in the file
+	 * @param value
+	 *            the value to add
+	 * @return the location of the value in the specified file
+	 * @throws IllegalStateException
+	 *             if the file does not store values of the specified type
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	long append(int fileID, PaxLayout.Type type, long value) throws IOException {
+		SlottedPageFile f = file(fileID);
+		PaxLayout layout = layout(f, type);
+		f.appendLock.lock(); // only one thread at a time can append values to the file
+		try {
+			int size = size(fileID);
+			if (size > 0) {
+				SlottedPage p = page(fileID, size - 1, true);
+				try {
+					long location = concatenate(p.pageID(), layout.add(p, value));
+					updated(p, fileID);
+					return location;
+				} catch (OverflowException e) { // if the page is full
+				} finally {
+					release(p, fileID, true);
+				}
+			}
+			SlottedPage p = f.newPage(size);
+			long location;
+			try {
+				location = concatenate(p.pageID(), layout.add(p, value));
+			} catch (OverflowException e) {
+				throw new IOException(e);
+			}
+			updated(p, fileID);
+			return location;
+		} finally {
+			f.appendLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the {@code PaxLayout} of the specified file after verifying that the file stores values of the
+	 * specified type.
+	 * 
+	 * @param f
+	 *            a {@code SlottedPageFile}
+	 * @param type
+	 *            the type of values
+	 * @return the {@code PaxLayout} of the specified file
+	 * @throws IllegalStateException
+	 *             if the file does not store values of the specified type
+	 */
+	PaxLayout layout(SlottedPageFile f, PaxLayout.Type type) {
+		PaxLayout layout = f.layout();
+		if (layout == null || !layout.isArrayOf(type))
+			throw new IllegalStateException(f.name + " does not store " + type + " values");
+		return layout;
+	}
+
+	/**
+	 * Stores the specified object, which does not fit in an empty {@code SlottedPage}, in a chain of overflow pages
+	 * appended to the specified file, and adds a pointer to that chain in the last {@code SlottedPage} of the file
+	 * preceding the chain or, if that is not possible, in a new {@code SlottedPage} following the chain. The caller
+	 * must hold the append lock of the file.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param o
+	 *            the object to add
+	 * @return the location of the object in the specified file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	Long addOverflow(int fileID, Object o) throws IOException {
+		SlottedPageFile f = file(fileID);
+		int size = size(fileID);
+		OverflowPointer pointer = writeOverflow(fileID, o, size);
+		int pageID = size + overflowPageCount(f, pointer);
+		if (size > 0) {
+			SlottedPage p = page(fileID, size - 1, true);
+			try {
+				long location = concatenate(p.pageID(), p.add(pointer));
+				updated(p, fileID);
+				return location;
+			} catch (OverflowException e) { // if the pointer cannot fit into the page (or it is an overflow page)
+			} finally {
+				release(p, fileID, true);
+			}
+		}
+		SlottedPage p = f.newPage(pageID);
+		long location;
+		try {
+			location = concatenate(p.pageID(), p.add(pointer));
 		} catch (OverflowException e) {
 			throw new IOException(e);
 		}
-		updated(p, fileID); // inform that the page is updated (and thus the page will eventually be saved in the file)
-		return location; // return the location of the object
+		updated(p, fileID);
+		return location;
 	}
 
 	/**
-	 * Puts the specified object at the specified location in the specified file.
+	 * Stores the specified object in a chain of overflow pages starting at the specified {@code SlottedPage} of the
+	 * specified file. The caller must hold the append lock of the file.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param o
+	 *            the object to store
+	 * @param pageID
+	 *            the ID of the first overflow page (at or beyond the end of the file)
+	 * @return an {@code OverflowPointer} to the chain
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	OverflowPointer writeOverflow(int fileID, Object o, int pageID) throws IOException {
+		SlottedPageFile f = file(fileID);
+		byte[] b = f.codec().encode(o);
+		int capacity = f.pageSize() - SlottedPage.OVERFLOW_HEADER_SIZE;
+		OverflowPointer pointer = new OverflowPointer(pageID, b.length);
+		for (int offset = 0; offset < b.length; pageID++) {
+			SlottedPage p = f.newPage(pageID);
+			offset += p.fillOverflowPage(b, offset, b.length - offset > capacity ? pageID + 1 : -1);
+			f.save(p); // saved right away since the chain is not read before the pointer to it is added
+		}
+		return pointer;
+	}
+
+	/**
+	 * Returns the number of overflow pages in the chain that the specified {@code OverflowPointer} points to.
+	 * 
+	 * @param f
+	 *            a {@code SlottedPageFile}
+	 * @param pointer
+	 *            an {@code OverflowPointer}
+	 * @return the number of overflow pages in the chain
+	 */
+	static int overflowPageCount(SlottedPageFile f, OverflowPointer pointer) {
+		int capacity = f.pageSize() - SlottedPage.OVERFLOW_HEADER_SIZE;
+		return (pointer.length + capacity - 1) / capacity;
+	}
+
+	/**
+	 * Puts the specified object, which does not fit in its {@code SlottedPage}, in a new chain of overflow pages
+	 * appended to the specified file and puts a pointer to that chain at the specified location. No
+	 * {@code SlottedPage} of the file may be held by the calling thread, which takes the append lock of the file.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage} at the location
+	 * @param index
+	 *            the index of the location in the {@code SlottedPage}
+	 * @param o
+	 *            the object to put
+	 * @return the object (possibly an {@code OverflowPointer}) stored previously at the specified location;
+	 *         {@code null} if no such object
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws InvalidLocationException
+	 *             if an invalid location is given or the pointer does not fit in the {@code SlottedPage}
+	 */
+	Object putOverflow(int fileID, int pageID, int index, Object o) throws IOException, InvalidLocationException {
+		SlottedPageFile f = file(fileID);
+		OverflowPointer pointer;
+		f.appendLock.lock();
+		try {
+			pointer = writeOverflow(fileID, o, size(fileID));
+		} finally {
+			f.appendLock.unlock();
+		}
+		SlottedPage p = page(fileID, pageID, true);
+		if (p == null)
+			throw new InvalidLocationException();
+		try {
+			Object old = p.put(index, pointer);
+			updated(p, fileID);
+			return old;
+		} catch (OverflowException | IndexOutOfBoundsException e) {
+			throw new InvalidLocationException();
+		} finally {
+			release(p, fileID, true);
+		}
+	}
+
+	/**
+	 * Inserts the specified object in the specified file, reusing the slot of an object removed from the file if
+	 * possible (see {@link SlottedPage#insert(Object)}). Only the pages from which objects were removed since the file
+	 * was opened are considered; if none of them can accommodate the object, the object is added at the end of the
+	 * file as in {@link #add(int, Object)}.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param o
+	 *            the object to insert
+	 * @return the location of the object in the specified file
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public Long insert(int fileID, Object o) throws IOException {
+		SlottedPageFile f = file(fileID);
+		f.appendLock.lock(); // keeps appending threads from updating the same page
+		try {
+			for (Integer pageID = f.pagesWithFreeSlots.pollFirst(); pageID != null; pageID = f.pagesWithFreeSlots
+					.pollFirst()) {
+				SlottedPage p = page(fileID, pageID, true);
+				if (p == null)
+					continue;
+				try {
+					if (p.freeSlot() < 0)
+						continue; // all of the free slots have been reused
+					long location = concatenate(p.pageID(), p.insert(o));
+					updated(p, fileID);
+					if (p.freeSlot() >= 0)
+						f.pagesWithFreeSlots.add(pageID);
+					return location;
+				} catch (OverflowException e) { // tried again once another object is removed from the page
+				} finally {
+					release(p, fileID, true);
+				}
+			}
+			return add(fileID, o);
+		} finally {
+			f.appendLock.unlock();
+		}
+	}
+
+	/**
+	 * Puts the specified object at the specified location in the specified file. An object that does not fit in the
+	 * {@code SlottedPage} at the location is stored in a new chain of overflow pages (see
+	 * {@link #putOverflow(int, int, int, Object)}).
 	 * 
 	 * @param fileID
 	 *            the ID of the file
@@ -110,27 +682,60 @@ public class FileManager implements StorageManager<Long, Object> {
 		{
 			throw new InvalidLocationException();
 		}
-		SlottedPage pg = page(fileID, pgId);
+		SlottedPage pg = page(fileID, pgId, true);
 		if(pg==null)
 		{
-			pg  = new SlottedPage(pgId);
-		
+			// the page is created while no other thread can append pages to the file
+			SlottedPageFile f = file(fileID);
+			f.appendLock.lock();
+			try {
+				pg = page(fileID, pgId, true);
+				if(pg==null)
+				{
+					pg  = f.newPage(pgId);
+					try {
+						Object oldval;
+						try {
+							oldval = pg.put(pgIndex, o);
+						} catch (OverflowException e) { // the chain follows the new page
+							if (pg.layout() != null)
+								throw e;
+							oldval = pg.put(pgIndex, writeOverflow(fileID, o, Math.max(size(fileID), pgId + 1)));
+						}
+						updated(pg,fileID);
+						return resolve(fileID, oldval);
+					}catch (OverflowException | IndexOutOfBoundsException e)
+					{
+						throw new InvalidLocationException();
+					}
+				}
+			} finally {
+				f.appendLock.unlock();
+			}
 		}
 		Object oldval =null;
+		boolean overflow = false;
 		try {
 			oldval =pg.put(pgIndex, o);
+			updated(pg,fileID);
+		} catch (OverflowException e) {
+			if (pg.layout() != null)
+				throw new InvalidLocationException();
+			overflow = true; // the page is released before the chain of overflow pages is appended
 		} catch (IOException ioe)
 		{
 			throw ioe;
-		}catch (OverflowException | IndexOutOfBoundsException e)
+		}catch (IndexOutOfBoundsException e)
 		{
 			throw new InvalidLocationException();
 			
+		} finally {
+			release(pg, fileID, true);
 		}
-
-		updated(pg,fileID);
+		if (overflow)
+			oldval = putOverflow(fileID, pgId, pgIndex, o);
 		
-		return oldval;
+		return resolve(fileID, oldval);
 		
 		
 		
@@ -153,7 +758,7 @@ public class FileManager implements StorageManager<Long, Object> {
 	@Override
 	public Object get(int fileID, Long location) throws IOException, InvalidLocationException {
 		Object retval = null;
-		SlottedPage p = page(fileID, first(location)); // the page specified by the 1st half of the location
+		SlottedPage p = page(fileID, first(location), false); // the page specified by the 1st half of the location
 		if(p==null)
 		{
 			throw new InvalidLocationException();
@@ -164,8 +769,298 @@ public class FileManager implements StorageManager<Long, Object> {
 		} catch (IndexOutOfBoundsException | IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
+		} finally {
+			release(p, fileID, false);
+		}
+		return resolve(fileID, retval);
+	}
+
+	/**
+	 * Returns the {@code long} value at the specified location in the specified file, whose {@code PaxLayout} must be
+	 * {@link PaxLayout#LONGS}, without boxing it.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param location
+	 *            the location of the value
+	 * @return the {@code long} value at the specified location in the specified file
+	 * @throws IllegalStateException
+	 *             if the file does not store {@code long} values
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws InvalidLocationException
+	 *             if an invalid location is given or the value at that location was removed
+	 */
+	public long getLong(int fileID, long location) throws IOException, InvalidLocationException {
+		return value(fileID, PaxLayout.Type.LONG, location);
+	}
+
+	/**
+	 * Returns the {@code int} value at the specified location in the specified file, whose {@code PaxLayout} must be
+	 * {@link PaxLayout#INTS}, without boxing it.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param location
+	 *            the location of the value
+	 * @return the {@code int} value at the specified location in the specified file
+	 * @throws IllegalStateException
+	 *             if the file does not store {@code int} values
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws InvalidLocationException
+	 *             if an invalid location is given or the value at that location was removed
+	 */
+	public int getInt(int fileID, long location) throws IOException, InvalidLocationException {
+		return (int) value(fileID, PaxLayout.Type.INT, location);
+	}
+
+	/**
+	 * Returns the value at the specified location in the specified file, which must store values of the specified
+	 * type.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param type
+	 *            the type of the values in the file
+	 * @param location
+	 *            the location of the value
+	 * @return the value at the specified location in the specified file
+	 * @throws IllegalStateException
+	 *             if the file does not store values of the specified type
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws InvalidLocationException
+	 *             if an invalid location is given or the value at that location was removed
+	 */
+	long value(int fileID, PaxLayout.Type type, long location) throws IOException, InvalidLocationException {
+		PaxLayout layout = layout(file(fileID), type);
+		SlottedPage p = page(fileID, first(location), false);
+		if (p == null)
+			throw new InvalidLocationException();
+		try {
+			return layout.getLong(p, second(location));
+		} catch (IndexOutOfBoundsException e) {
+			throw new InvalidLocationException();
+		} finally {
+			release(p, fileID, false);
+		}
+	}
+
+	/**
+	 * Performs the specified action for each {@code long} value stored in the specified file, whose
+	 * {@code PaxLayout} must be {@link PaxLayout#LONGS}, without boxing the values. The action is performed while
+	 * each {@code SlottedPage} is held and thus must not access the file.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param action
+	 *            the action to perform for each value
+	 * @throws IllegalStateException
+	 *             if the file does not store {@code long} values
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void iterateLongs(int fileID, LongConsumer action) throws IOException {
+		PaxLayout layout = layout(file(fileID), PaxLayout.Type.LONG);
+		int size = size(fileID);
+		for (int pageID = 0; pageID < size; pageID++) {
+			SlottedPage p = page(fileID, pageID, false);
+			if (p == null)
+				continue;
+			try {
+				layout.forEachLong(p, action);
+			} finally {
+				release(p, fileID, false);
+			}
+		}
+	}
+
+	/**
+	 * Performs the specified action for each {@code int} value stored in the specified file, whose {@code PaxLayout}
+	 * must be {@link PaxLayout#INTS}, without boxing the values. The action is performed while each
+	 * {@code SlottedPage} is held and thus must not access the file.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param action
+	 *            the action to perform for each value
+	 * @throws IllegalStateException
+	 *             if the file does not store {@code int} values
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public void iterateInts(int fileID, IntConsumer action) throws IOException {
+		PaxLayout layout = layout(file(fileID), PaxLayout.Type.INT);
+		int size = size(fileID);
+		for (int pageID = 0; pageID < size; pageID++) {
+			SlottedPage p = page(fileID, pageID, false);
+			if (p == null)
+				continue;
+			try {
+				layout.forEachInt(p, action);
+			} finally {
+				release(p, fileID, false);
+			}
+		}
+	}
+
+	/**
+	 * Returns a read-only {@code ByteBuffer} over the bytes of the object at the specified location in the specified
+	 * file ({@code null} if that object was removed). The object is not deserialized.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param location
+	 *            the location of the object
+	 * @return a read-only {@code ByteBuffer} over the bytes of the object at the specified location in the specified
+	 *         file; {@code null} if that object was removed
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws InvalidLocationException
+	 *             if an invalid location is given
+	 */
+	public ByteBuffer getRaw(int fileID, Long location) throws IOException, InvalidLocationException {
+		return getRaw(fileID, location, b -> b == null ? null : detach(b));
+	}
+
+	/**
+	 * Applies the specified function to a read-only {@code ByteBuffer} over the bytes of the object at the specified
+	 * location in the specified file ({@code null} if that object was removed). The object is neither copied nor
+	 * deserialized, and the {@code ByteBuffer} must not be used after the function returns. The bytes of an object
+	 * stored in overflow pages are copied into a single {@code ByteBuffer} (see {@link #getStream(int, Long)} to read
+	 * them one page at a time).
+	 * 
+	 * @param <T>
+	 *            the type of the result of the function
+	 * @param fileID
+	 *            the ID of the file
+	 * @param location
+	 *            the location of the object
+	 * @param f
+	 *            a function that reads the bytes of the object
+	 * @return the result of the function
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws InvalidLocationException
+	 *             if an invalid location is given
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T getRaw(int fileID, Long location, Function<ByteBuffer, T> f)
+			throws IOException, InvalidLocationException {
+		Object result = slot(fileID, location, b -> b != null && OverflowPointer.isStoredAt(b, 0)
+				? OverflowPointer.read(b, 0) : f.apply(b));
+		if (result instanceof OverflowPointer)
+			return f.apply(ByteBuffer.wrap(read(fileID, (OverflowPointer) result)).asReadOnlyBuffer());
+		return (T) result;
+	}
+
+	/**
+	 * Returns an {@code InputStream} over the bytes of the object at the specified location in the specified file
+	 * ({@code null} if that object was removed). The bytes are those encoded by the {@code Codec} of the file, as in
+	 * {@link #getRaw(int, Long)}. For an object stored in overflow pages, the {@code InputStream} reads one overflow
+	 * page at a time, so the object never needs to fit in memory as a whole.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param location
+	 *            the location of the object
+	 * @return an {@code InputStream} over the bytes of the object at the specified location in the specified file;
+	 *         {@code null} if that object was removed
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws InvalidLocationException
+	 *             if an invalid location is given
+	 */
+	public InputStream getStream(int fileID, Long location) throws IOException, InvalidLocationException {
+		Object result = slot(fileID, location, b -> b == null ? null
+				: OverflowPointer.isStoredAt(b, 0) ? OverflowPointer.read(b, 0) : detach(b));
+		if (result instanceof OverflowPointer)
+			return new OverflowInputStream(fileID, (OverflowPointer) result);
+		ByteBuffer b = (ByteBuffer) result;
+		return b == null ? null : new ByteBufferInputStream(b, 0, b.limit());
+	}
+
+	/**
+	 * Applies the specified function to a read-only {@code ByteBuffer} over the bytes stored in the slot specified by
+	 * the specified location in the specified file ({@code null} if the object in that slot was removed).
+	 * 
+	 * @param <T>
+	 *            the type of the result of the function
+	 * @param fileID
+	 *            the ID of the file
+	 * @param location
+	 *            the location of the object
+	 * @param f
+	 *            a function that reads the bytes in the slot
+	 * @return the result of the function
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws InvalidLocationException
+	 *             if an invalid location is given
+	 */
+	<T> T slot(int fileID, Long location, Function<ByteBuffer, T> f) throws IOException, InvalidLocationException {
+		SlottedPage p = page(fileID, first(location), false); // the page specified by the 1st half of the location
+		if (p == null)
+			throw new InvalidLocationException();
+		try {
+			return f.apply(p.getRaw(second(location)));
+		} catch (IndexOutOfBoundsException e) {
+			throw new InvalidLocationException();
+		} finally {
+			release(p, fileID, false);
 		}
-		return retval;
+	}
+
+	/**
+	 * Returns the specified object or, if it is an {@code OverflowPointer}, the object stored in the chain of overflow
+	 * pages that it points to.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param o
+	 *            an object obtained from a {@code SlottedPage} of the file
+	 * @return the specified object or the object that it points to
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	Object resolve(int fileID, Object o) throws IOException {
+		if (!(o instanceof OverflowPointer))
+			return o;
+		byte[] b = read(fileID, (OverflowPointer) o);
+		return file(fileID).codec().decode(ByteBuffer.wrap(b), 0, b.length);
+	}
+
+	/**
+	 * Reads the bytes stored in the chain of overflow pages that the specified {@code OverflowPointer} points to.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param pointer
+	 *            an {@code OverflowPointer}
+	 * @return the bytes stored in the chain of overflow pages
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	byte[] read(int fileID, OverflowPointer pointer) throws IOException {
+		byte[] b = new byte[pointer.length];
+		try (DataInputStream in = new DataInputStream(new OverflowInputStream(fileID, pointer))) {
+			in.readFully(b);
+		}
+		return b;
+	}
+
+	/**
+	 * Returns a {@code ByteBuffer} with the content of the specified {@code ByteBuffer} that remains valid after the
+	 * {@code SlottedPage} sharing its memory is released. Since each {@code SlottedPage} obtained from a
+	 * {@code SlottedPageFile} is a private copy, the given {@code ByteBuffer} is returned as is.
+	 * 
+	 * @param b
+	 *            a {@code ByteBuffer} obtained from {@link SlottedPage#getRaw(int)}
+	 * @return a {@code ByteBuffer} with the content of the specified {@code ByteBuffer}
+	 */
+	ByteBuffer detach(ByteBuffer b) {
+		return b;
 	}
 
 	/**
@@ -185,19 +1080,22 @@ public class FileManager implements StorageManager<Long, Object> {
 	@Override
 	public Object remove(int fileID, Long location) throws IOException, InvalidLocationException {
 		Object retval = null;
-		SlottedPage p = page(fileID, first(location)); // the page specified by the 1st half of the location
+		SlottedPage p = page(fileID, first(location), true); // the page specified by the 1st half of the location
 		if (p==null)
 		{
 			throw new InvalidLocationException();
 		}
 		 try {
 			retval =p.remove(second(location));
+			updated (p,fileID);
+			file(fileID).pagesWithFreeSlots.add(p.pageID());
 		} catch (IndexOutOfBoundsException  e) {
 			e.printStackTrace();
 			throw new InvalidLocationException ();
+		} finally {
+			release(p, fileID, true);
 		}
-		updated (p,fileID);
-		return retval;
+		return resolve(fileID, retval);
 		 
 	}
 
@@ -227,6 +1125,21 @@ public class FileManager implements StorageManager<Long, Object> {
 		return new FileIterator(fileID);
 	}
 
+	/**
+	 * Returns an iterator over the values of the specified field in the records (arrays of {@code Object}s) stored in
+	 * the specified file. For a file with a {@code PaxLayout}, only the values of that field are read from each
+	 * {@code SlottedPage}. Objects other than records are skipped.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param field
+	 *            the index of a field
+	 * @return an iterator over the values of the specified field in the records stored in the specified file
+	 */
+	public Iterator<Object> iterator(int fileID, int field) {
+		return new ProjectionIterator(fileID, field);
+	}
+
 	/**
 	 * Returns the number of {@code SlottedPage}s in the specified {@code SlottedPageFile}.
 	 * 
@@ -241,21 +1154,39 @@ public class FileManager implements StorageManager<Long, Object> {
 	}
 
 	/**
-	 * Returns the specified {@code SlottedPage} ({@code null} if no such {@code SlottedPage}).
+	 * Returns the specified {@code SlottedPage} ({@code null} if no such {@code SlottedPage}). The caller must pass a
+	 * non-{@code null} result to {@link #release(SlottedPage, int, boolean)} once it no longer uses the
+	 * {@code SlottedPage}.
 	 * 
 	 * @param fileID
 	 *            the ID of the file containing the {@code SlottedPage}
 	 * @param pageID
 	 *            the ID of the {@code SlottedPage}
+	 * @param exclusive
+	 *            {@code true} if the caller may update the {@code SlottedPage}; {@code false} if the caller only reads
+	 *            it
 	 * @return the specified {@code SlottedPage}; {@code null} if no such {@code SlottedPage}
 	 * @throws IOException
 	 *             if an I/O error occurs
 	 */
-	SlottedPage page(int fileID, int pageID) throws IOException {
+	SlottedPage page(int fileID, int pageID, boolean exclusive) throws IOException {
 		SlottedPageFile f = file(fileID);
 		return f.get(pageID);
 	}
 
+	/**
+	 * Is invoked when the caller of {@link #page(int, int, boolean)} no longer uses the specified {@code SlottedPage}.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage} obtained from {@link #page(int, int, boolean)}
+	 * @param fileID
+	 *            the ID of the file containing the {@code SlottedPage}
+	 * @param exclusive
+	 *            the mode in which the {@code SlottedPage} was obtained
+	 */
+	void release(SlottedPage p, int fileID, boolean exclusive) {
+	}
+
 	/**
 	 * Is invoked when the specified {@code SlottedPage} is updated.
 	 * 
@@ -318,8 +1249,16 @@ public class FileManager implements StorageManager<Long, Object> {
 	protected SlottedPageFile file(int fileID) throws FileNotFoundException, IOException {
 		SlottedPageFile file = id2file.get(fileID);
 		if (file == null) {
-			file = new SlottedPageFile(fileID + ".dat");
-			id2file.put(fileID, file);
+			synchronized (id2file) {
+				file = id2file.get(fileID);
+				if (file == null) {
+					file = new SlottedPageFile(fileID + ".dat", pageSize, compressed);
+					if (dense && file.size() == 0 && file.pageSize() <= SlottedPage.MAX_DENSE_SIZE)
+						file.setDenseSlots(true);
+					file.setCodec(codec);
+					id2file.put(fileID, file);
+				}
+			}
 		}
 		return file;
 	}
@@ -335,7 +1274,11 @@ public class FileManager implements StorageManager<Long, Object> {
 			try 
 			{
 				spSize = size(FileID);				
-				currSP = page(FileID,0);
+				currSP = page(FileID,0,false);
+				if (currSP != null) {
+					spi = currSP.iterator();
+					release(currSP, FileID, false);
+				}
 			
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
@@ -364,12 +1307,13 @@ public class FileManager implements StorageManager<Long, Object> {
 			}
 			else
 			{				
-				++currPg;
-				if( currPg<spSize)
+				// pages without objects (e.g., overflow pages) are skipped
+				while( !retval && ++currPg<spSize)
 				{
 					try {
-						currSP = page(FileID,currPg);
+						currSP = page(FileID,currPg,false);
 						spi = currSP.iterator();
+						release(currSP, FileID, false);
 						if(currSP!=null && spi!=null && spi.hasNext()) 
 						{
 							retval =true;
@@ -377,6 +1321,7 @@ public class FileManager implements StorageManager<Long, Object> {
 					} catch (Exception e) {
 						// TODO Auto-generated catch block
 						e.printStackTrace();
+						break;
 					}
 					
 				}
@@ -392,7 +1337,222 @@ public class FileManager implements StorageManager<Long, Object> {
 			 {
 				 throw new NoSuchElementException();
 			 }
-			 return spi.next();
+			 try {
+				 return resolve(FileID, spi.next());
+			 } catch (IOException e) {
+				 throw new UncheckedIOException(e);
+			 }
 		}
 	}
+
+	/**
+	 * A {@code ProjectionIterator} iterates over the values of a field in the records stored in a file, obtaining the
+	 * values from one {@code SlottedPage} at a time.
+	 */
+	class ProjectionIterator implements Iterator<Object> {
+
+		/**
+		 * The ID of the file.
+		 */
+		int fileID;
+
+		/**
+		 * The index of the field.
+		 */
+		int field;
+
+		/**
+		 * The number of {@code SlottedPage}s in the file.
+		 */
+		int size;
+
+		/**
+		 * The ID of the next {@code SlottedPage} to read.
+		 */
+		int pageID = 0;
+
+		/**
+		 * The values from the current {@code SlottedPage} that have not been returned yet.
+		 */
+		Iterator<Object> values = Collections.emptyIterator();
+
+		/**
+		 * A private copy of the current {@code SlottedPage} if it stores objects in slots.
+		 */
+		SlottedPage copy;
+
+		/**
+		 * Constructs a {@code ProjectionIterator}.
+		 * 
+		 * @param fileID
+		 *            the ID of the file
+		 * @param field
+		 *            the index of the field
+		 */
+		ProjectionIterator(int fileID, int field) {
+			this.fileID = fileID;
+			this.field = field;
+			try {
+				size = size(fileID);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				while (!values.hasNext() && pageID < size)
+					values = values(pageID++);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return values.hasNext();
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return values.next();
+		}
+
+		/**
+		 * Returns an iterator over the values of the field in the records stored in the specified
+		 * {@code SlottedPage}. The records in slots are deserialized lazily from a private copy of the
+		 * {@code SlottedPage}.
+		 * 
+		 * @param pageID
+		 *            the ID of a {@code SlottedPage}
+		 * @return an iterator over the values of the field in the records stored in the specified {@code SlottedPage}
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		Iterator<Object> values(int pageID) throws IOException {
+			SlottedPage p = page(fileID, pageID, false);
+			if (p == null)
+				return Collections.emptyIterator();
+			try {
+				if (p.layout() != null)
+					return p.layout().project(p, field).iterator();
+				copy = p.copyInto(copy); // the page may be reused once it is released
+			} finally {
+				release(p, fileID, false);
+			}
+			return copy.stream().map(o -> {
+				try {
+					return resolve(fileID, o);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}).filter(o -> o instanceof Object[]).map(o -> ((Object[]) o)[field]).iterator();
+		}
+
+	}
+
+	/**
+	 * An {@code OverflowInputStream} reads the bytes stored in a chain of overflow pages, holding the bytes of one
+	 * overflow page at a time.
+	 */
+	class OverflowInputStream extends InputStream {
+
+		/**
+		 * The ID of the file containing the overflow pages.
+		 */
+		int fileID;
+
+		/**
+		 * The ID of the next overflow page to read ({@code -1} if none).
+		 */
+		int next;
+
+		/**
+		 * The number of bytes not read yet.
+		 */
+		int remaining;
+
+		/**
+		 * The bytes of the current overflow page.
+		 */
+		byte[] chunk;
+
+		/**
+		 * The position of the next byte to read in the current overflow page.
+		 */
+		int position = 0;
+
+		/**
+		 * The number of bytes of the current overflow page.
+		 */
+		int limit = 0;
+
+		/**
+		 * Constructs an {@code OverflowInputStream}.
+		 * 
+		 * @param fileID
+		 *            the ID of the file containing the overflow pages
+		 * @param pointer
+		 *            an {@code OverflowPointer} to the first overflow page
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		OverflowInputStream(int fileID, OverflowPointer pointer) throws IOException {
+			this.fileID = fileID;
+			this.next = pointer.pageID;
+			this.remaining = pointer.length;
+			this.chunk = new byte[pageSize(fileID)];
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill())
+				return -1;
+			remaining--;
+			return chunk[position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			if (!fill())
+				return -1;
+			int n = Math.min(len, limit - position);
+			System.arraycopy(chunk, position, b, off, n);
+			position += n;
+			remaining -= n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return limit - position;
+		}
+
+		/**
+		 * Reads the next overflow page if all of the bytes of the current overflow page have been read.
+		 * 
+		 * @return {@code true} if there are bytes to read; {@code false} if all of the bytes have been read
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		boolean fill() throws IOException {
+			if (position < limit)
+				return true;
+			if (remaining == 0 || next < 0)
+				return false;
+			SlottedPage p = page(fileID, next, false);
+			if (p == null || !p.isOverflowPage())
+				throw new IOException("invalid overflow page " + next + " in file " + fileID);
+			try {
+				limit = p.readOverflowPage(chunk);
+				next = p.nextOverflowPage();
+			} finally {
+				release(p, fileID, false);
+			}
+			position = 0;
+			return limit > 0;
+		}
+
+	}
 }
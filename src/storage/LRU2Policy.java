@@ -0,0 +1,101 @@
+package storage;
+
+import java.util.ArrayList;
+import java.util.function.IntPredicate;
+
+/**
+ * A {@code LRU2Policy} is a {@code ReplacementPolicy} that implements the LRU-K algorithm with K = 2. For each frame,
+ * it remembers the times of the last two references to the {@code SlottedPage} in that frame and evicts the
+ * {@code SlottedPage} whose second-to-last reference is the oldest. {@code SlottedPage}s referenced only once (e.g.,
+ * those brought in by a sequential scan) are evicted before any {@code SlottedPage} referenced twice, so a scan cannot
+ * flush out the {@code SlottedPage}s that are repeatedly looked up.
+ * 
+ * Consecutive references to the same frame are treated as a single (correlated) reference, so that reading and then
+ * updating a {@code SlottedPage} within one operation does not make it look popular. The methods are synchronized
+ * since every access updates the shared clock.
+ */
+public class LRU2Policy implements ReplacementPolicy {
+
+	/**
+	 * The time of the last reference to each frame ({@code 0} if the frame is not in use).
+	 */
+	long[] last = new long[0];
+
+	/**
+	 * The time of the second-to-last reference to each frame ({@code 0} if the frame has been referenced only once).
+	 */
+	long[] previous = new long[0];
+
+	/**
+	 * The logical clock that is advanced by each reference.
+	 */
+	long clock = 0;
+
+	/**
+	 * The frame referenced most recently ({@code -1} if no such frame).
+	 */
+	int lastFrame = -1;
+
+	@Override
+	public synchronized void resize(int frames) {
+		last = new long[frames];
+		previous = new long[frames];
+		clock = 0;
+		lastFrame = -1;
+	}
+
+	@Override
+	public synchronized void accessed(int frame) {
+		clock++;
+		if (frame != lastFrame && last[frame] != 0)
+			previous[frame] = last[frame];
+		last[frame] = clock;
+		lastFrame = frame;
+	}
+
+	@Override
+	public synchronized void removed(int frame) {
+		last[frame] = 0;
+		previous[frame] = 0;
+		if (frame == lastFrame)
+			lastFrame = -1;
+	}
+
+	@Override
+	public synchronized int victim(IntPredicate evictable) {
+		int victim = -1;
+		for (int i = 0; i < last.length; i++)
+			if (last[i] != 0 && (victim == -1 || precedes(i, victim)) && evictable.test(i))
+				victim = i;
+		return victim;
+	}
+
+	@Override
+	public synchronized int[] evictionOrder() {
+		ArrayList<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < last.length; i++)
+			if (last[i] != 0)
+				order.add(i);
+		order.sort((i, j) -> precedes(i, j) ? -1 : precedes(j, i) ? 1 : 0);
+		int[] result = new int[order.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = order.get(i);
+		return result;
+	}
+
+	/**
+	 * Determines whether or not the specified frame should be evicted before another frame.
+	 * 
+	 * @param i
+	 *            a frame number
+	 * @param j
+	 *            a frame number
+	 * @return {@code true} if frame {@code i} should be evicted before frame {@code j}; {@code false} otherwise
+	 */
+	boolean precedes(int i, int j) {
+		if (previous[i] == previous[j]) // both referenced once: the least recently used one goes first
+			return last[i] < last[j];
+		return previous[i] < previous[j];
+	}
+
+}
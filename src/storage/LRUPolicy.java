@@ -0,0 +1,86 @@
+package storage;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A {@code LRUPolicy} is a {@code ReplacementPolicy} that evicts the least recently used {@code SlottedPage}. The
+ * frames in use are kept in a doubly linked list ordered by the time of their last access, so that every operation
+ * takes constant time. The methods are synchronized since every access updates the list.
+ */
+public class LRUPolicy implements ReplacementPolicy {
+
+	/**
+	 * The previous frame of each frame in the list (the element at the end is the sentinel of the list).
+	 */
+	int[] prev = new int[] { 0 };
+
+	/**
+	 * The next frame of each frame in the list (the element at the end is the sentinel of the list).
+	 */
+	int[] next = new int[] { 0 };
+
+	/**
+	 * A flag for each frame indicating whether or not that frame is in the list.
+	 */
+	boolean[] linked = new boolean[0];
+
+	@Override
+	public synchronized void resize(int frames) {
+		prev = new int[frames + 1];
+		next = new int[frames + 1];
+		linked = new boolean[frames];
+		prev[frames] = next[frames] = frames;
+	}
+
+	@Override
+	public synchronized void accessed(int frame) {
+		if (linked[frame])
+			unlink(frame);
+		int sentinel = linked.length;
+		int last = prev[sentinel];
+		next[last] = frame;
+		prev[frame] = last;
+		next[frame] = sentinel;
+		prev[sentinel] = frame;
+		linked[frame] = true;
+	}
+
+	@Override
+	public synchronized void removed(int frame) {
+		if (linked[frame])
+			unlink(frame);
+	}
+
+	@Override
+	public synchronized int victim(IntPredicate evictable) {
+		int sentinel = linked.length;
+		for (int frame = next[sentinel]; frame != sentinel; frame = next[frame])
+			if (evictable.test(frame))
+				return frame;
+		return -1;
+	}
+
+	@Override
+	public synchronized int[] evictionOrder() {
+		int sentinel = linked.length;
+		int[] order = new int[sentinel];
+		int count = 0;
+		for (int frame = next[sentinel]; frame != sentinel; frame = next[frame])
+			order[count++] = frame;
+		return Arrays.copyOf(order, count);
+	}
+
+	/**
+	 * Removes the specified frame from the list.
+	 * 
+	 * @param frame
+	 *            a frame number
+	 */
+	void unlink(int frame) {
+		next[prev[frame]] = next[frame];
+		prev[next[frame]] = prev[frame];
+		linked[frame] = false;
+	}
+
+}
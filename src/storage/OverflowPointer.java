@@ -0,0 +1,88 @@
+package storage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An {@code OverflowPointer} is stored in a slot of a {@code SlottedPage} in place of an object too large for a
+ * {@code SlottedPage}. The bytes of such an object are stored in a chain of overflow pages in the same file, and the
+ * {@code OverflowPointer} records the first page of the chain and the number of bytes. An {@code OverflowPointer} is
+ * represented by {@link #MARK}, which never starts the bytes produced by a {@code Codec}, followed by the page ID and
+ * the length.
+ */
+class OverflowPointer {
+
+	/**
+	 * The byte with which an {@code OverflowPointer} starts.
+	 */
+	static final byte MARK = (byte) 0xFE;
+
+	/**
+	 * The number of bytes representing an {@code OverflowPointer}.
+	 */
+	static final int SIZE = 1 + 2 * Integer.BYTES;
+
+	/**
+	 * The ID of the first overflow page.
+	 */
+	int pageID;
+
+	/**
+	 * The number of bytes of the object.
+	 */
+	int length;
+
+	/**
+	 * Constructs an {@code OverflowPointer}.
+	 * 
+	 * @param pageID
+	 *            the ID of the first overflow page
+	 * @param length
+	 *            the number of bytes of the object
+	 */
+	OverflowPointer(int pageID, int length) {
+		this.pageID = pageID;
+		this.length = length;
+	}
+
+	@Override
+	public String toString() {
+		return "(overflow page ID: " + pageID + ", length: " + length + ")";
+	}
+
+	/**
+	 * Returns the bytes representing this {@code OverflowPointer}.
+	 * 
+	 * @return the bytes representing this {@code OverflowPointer}
+	 */
+	byte[] toByteArray() {
+		return ByteBuffer.allocate(SIZE).put(MARK).putInt(pageID).putInt(length).array();
+	}
+
+	/**
+	 * Determines whether or not an {@code OverflowPointer} is stored at the specified offset in the specified
+	 * {@code ByteBuffer}.
+	 * 
+	 * @param b
+	 *            a {@code ByteBuffer}
+	 * @param offset
+	 *            an offset in the {@code ByteBuffer}
+	 * @return {@code true} if an {@code OverflowPointer} is stored at the specified offset; {@code false} otherwise
+	 */
+	static boolean isStoredAt(ByteBuffer b, int offset) {
+		return b.get(offset) == MARK;
+	}
+
+	/**
+	 * Reads the {@code OverflowPointer} stored at the specified offset in the specified {@code ByteBuffer}.
+	 * 
+	 * @param b
+	 *            a {@code ByteBuffer}
+	 * @param offset
+	 *            the offset of an {@code OverflowPointer} in the {@code ByteBuffer}
+	 * @return the {@code OverflowPointer} stored at the specified offset
+	 */
+	static OverflowPointer read(ByteBuffer b, int offset) {
+		return new OverflowPointer(b.getInt(offset + 1), b.getInt(offset + 1 + Integer.BYTES));
+	}
+
+}
@@ -0,0 +1,117 @@
+package storage;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@code PageCleaner} is a background thread that saves dirty {@code SlottedPage}s in a {@code BufferedFileManager}
+ * ahead of their eviction. Whenever the fraction of dirty frames exceeds the high watermark, it saves dirty
+ * {@code SlottedPage}s in the order in which the {@code ReplacementPolicy} would evict them until that fraction drops
+ * to the low watermark. Threads that need a free frame then mostly find a clean {@code SlottedPage} to evict and do
+ * not have to wait for a write.
+ */
+class PageCleaner extends Thread {
+
+	/**
+	 * The {@code BufferedFileManager} whose frames are cleaned.
+	 */
+	BufferedFileManager manager;
+
+	/**
+	 * The fraction of dirty frames at which cleaning stops.
+	 */
+	double lowWatermark;
+
+	/**
+	 * The fraction of dirty frames above which cleaning starts.
+	 */
+	double highWatermark;
+
+	/**
+	 * The maximum time in milliseconds between two checks of the fraction of dirty frames.
+	 */
+	long interval;
+
+	/**
+	 * A flag indicating whether or not this {@code PageCleaner} should keep running.
+	 */
+	volatile boolean running = true;
+
+	/**
+	 * Constructs a {@code PageCleaner}.
+	 * 
+	 * @param manager
+	 *            the {@code BufferedFileManager} whose frames are cleaned
+	 * @param lowWatermark
+	 *            the fraction of dirty frames at which cleaning stops
+	 * @param highWatermark
+	 *            the fraction of dirty frames above which cleaning starts
+	 * @param interval
+	 *            the maximum time in milliseconds between two checks of the fraction of dirty frames
+	 */
+	PageCleaner(BufferedFileManager manager, double lowWatermark, double highWatermark, long interval) {
+		super("page cleaner");
+		if (lowWatermark < 0 || lowWatermark > highWatermark || highWatermark > 1)
+			throw new IllegalArgumentException();
+		this.manager = manager;
+		this.lowWatermark = lowWatermark;
+		this.highWatermark = highWatermark;
+		this.interval = interval;
+		setDaemon(true);
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				if (manager.dirtyPageCount() > highWatermark * manager.BufferSize)
+					clean();
+			} catch (IOException e) {
+				manager.statistics.cleanerFailures.increment(); // the pages stay dirty and are saved on eviction
+			}
+			LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(interval));
+		}
+	}
+
+	/**
+	 * Saves dirty {@code SlottedPage}s in the eviction order until the fraction of dirty frames drops to the low
+	 * watermark.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void clean() throws IOException {
+		int[] order = manager.evictionOrder();
+		for (int i = 0; i < order.length && running; i++) {
+			if (manager.dirtyPageCount() <= lowWatermark * manager.BufferSize)
+				return;
+			manager.flush(order[i], false);
+		}
+	}
+
+	/**
+	 * Wakes up this {@code PageCleaner} if the fraction of dirty frames exceeds the high watermark.
+	 * 
+	 * @param dirtyPages
+	 *            the current number of dirty frames
+	 */
+	void dirtied(int dirtyPages) {
+		if (dirtyPages > highWatermark * manager.BufferSize)
+			LockSupport.unpark(this);
+	}
+
+	/**
+	 * Stops this {@code PageCleaner} and waits for it to terminate.
+	 */
+	void shutdown() {
+		running = false;
+		LockSupport.unpark(this);
+		try {
+			join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+package storage;
+
+import java.util.Arrays;
+
+/**
+ * A {@code PageTable} maps (file ID, page ID) keys to frame numbers using open addressing with linear probing. Lookups
+ * neither box their keys nor allocate any objects. A {@code PageTable} is not synchronized.
+ */
+class PageTable {
+
+	/**
+	 * The keys stored in this {@code PageTable}.
+	 */
+	long[] keys;
+
+	/**
+	 * The frame numbers stored in this {@code PageTable} ({@code -1} for empty entries).
+	 */
+	int[] values;
+
+	/**
+	 * The number of entries in this {@code PageTable}.
+	 */
+	int size = 0;
+
+	/**
+	 * Constructs a {@code PageTable}.
+	 * 
+	 * @param capacity
+	 *            the number of entries that this {@code PageTable} can hold before it grows
+	 */
+	PageTable(int capacity) {
+		int length = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2; // keeps the load factor at most 0.5
+		keys = new long[length];
+		values = new int[length];
+		Arrays.fill(values, -1);
+	}
+
+	/**
+	 * Returns the number of entries in this {@code PageTable}.
+	 * 
+	 * @return the number of entries in this {@code PageTable}
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the frame number associated with the specified key ({@code -1} if no such frame number).
+	 * 
+	 * @param key
+	 *            a key obtained by concatenating a file ID and a page ID
+	 * @return the frame number associated with the specified key; {@code -1} if no such frame number
+	 */
+	int get(long key) {
+		int mask = values.length - 1;
+		for (int i = index(key); values[i] != -1; i = (i + 1) & mask)
+			if (keys[i] == key)
+				return values[i];
+		return -1;
+	}
+
+	/**
+	 * Associates the specified frame number with the specified key.
+	 * 
+	 * @param key
+	 *            a key obtained by concatenating a file ID and a page ID
+	 * @param frame
+	 *            a frame number
+	 */
+	void put(long key, int frame) {
+		int mask = values.length - 1;
+		int i = index(key);
+		for (; values[i] != -1; i = (i + 1) & mask)
+			if (keys[i] == key) {
+				values[i] = frame;
+				return;
+			}
+		keys[i] = key;
+		values[i] = frame;
+		if (++size * 2 > values.length)
+			grow();
+	}
+
+	/**
+	 * Removes the entry for the specified key.
+	 * 
+	 * @param key
+	 *            a key obtained by concatenating a file ID and a page ID
+	 * @return the frame number that was associated with the specified key; {@code -1} if no such frame number
+	 */
+	int remove(long key) {
+		int mask = values.length - 1;
+		int i = index(key);
+		for (; values[i] != -1; i = (i + 1) & mask)
+			if (keys[i] == key)
+				break;
+		int frame = values[i];
+		if (frame == -1)
+			return -1;
+		// shifts back the following entries in the same cluster so that no tombstones are needed
+		for (int j = (i + 1) & mask; values[j] != -1; j = (j + 1) & mask) {
+			int home = index(keys[j]);
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		values[i] = -1;
+		size--;
+		return frame;
+	}
+
+	/**
+	 * Doubles the number of entries that this {@code PageTable} can hold.
+	 */
+	void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new int[oldValues.length * 2];
+		Arrays.fill(values, -1);
+		size = 0;
+		for (int i = 0; i < oldValues.length; i++)
+			if (oldValues[i] != -1)
+				put(oldKeys[i], oldValues[i]);
+	}
+
+	/**
+	 * Returns the home index of the specified key.
+	 * 
+	 * @param key
+	 *            a key
+	 * @return the home index of the specified key
+	 */
+	int index(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & (values.length - 1);
+	}
+
+}
@@ -0,0 +1,630 @@
+package storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+import storage.SlottedPage.IndexOutOfBoundsException;
+import storage.SlottedPage.OverflowException;
+
+/**
+ * A {@code PaxLayout} stores records of a fixed schema in {@code SlottedPage}s using the PAX (Partition Attributes
+ * Across) layout. Each record is an array of {@code Object}s whose elements match the types of the fields in the
+ * schema. Instead of storing each record as a whole, a {@code SlottedPage} with a {@code PaxLayout} stores the values
+ * of each field in its own minipage, so a scan that reads one field touches only a contiguous array of primitive
+ * values.
+ * 
+ * A {@code SlottedPage} with a {@code PaxLayout} starts with the number of records, followed by a bitmap that
+ * indicates which of those records have not been removed and a minipage for each field. Each minipage has room for
+ * the number of records that fit in the {@code SlottedPage} (see {@link #capacity(int)}). Like a {@code Codec}, a
+ * {@code PaxLayout} is given to {@code SlottedPage}s by the file that contains them and holds no state other than the
+ * schema.
+ * 
+ * With a single {@code long} or {@code int} field ({@link #LONGS} and {@link #INTS}), a {@code SlottedPage} is an array
+ * of raw 8- or 4-byte values, which can be added, read, and scanned without boxing them (see
+ * {@link #add(SlottedPage, long)}, {@link #getLong(SlottedPage, int)}, and
+ * {@link #forEachLong(SlottedPage, LongConsumer)}).
+ */
+public class PaxLayout {
+
+	/**
+	 * The types of the fields that a {@code PaxLayout} supports.
+	 */
+	public enum Type {
+
+		/**
+		 * {@code Integer} values.
+		 */
+		INT(Integer.BYTES),
+
+		/**
+		 * {@code Long} values.
+		 */
+		LONG(Long.BYTES),
+
+		/**
+		 * {@code Double} values.
+		 */
+		DOUBLE(Double.BYTES);
+
+		/**
+		 * The number of bytes of each value.
+		 */
+		final int width;
+
+		/**
+		 * Constructs a {@code Type}.
+		 * 
+		 * @param width
+		 *            the number of bytes of each value
+		 */
+		Type(int width) {
+			this.width = width;
+		}
+
+	}
+
+	/**
+	 * The {@code PaxLayout} of {@code SlottedPage}s storing {@code long} values.
+	 */
+	public static final PaxLayout LONGS = new PaxLayout(Type.LONG);
+
+	/**
+	 * The {@code PaxLayout} of {@code SlottedPage}s storing {@code int} values.
+	 */
+	public static final PaxLayout INTS = new PaxLayout(Type.INT);
+
+	/**
+	 * The types of the fields in the schema of this {@code PaxLayout}.
+	 */
+	final Type[] types;
+
+	/**
+	 * The number of bytes of the fields preceding each field in a record.
+	 */
+	final int[] prefixes;
+
+	/**
+	 * The number of bytes of each record.
+	 */
+	final int width;
+
+	/**
+	 * Constructs a {@code PaxLayout}.
+	 * 
+	 * @param types
+	 *            the types of the fields in the schema
+	 * @throws IllegalArgumentException
+	 *             if no type is given
+	 */
+	public PaxLayout(Type... types) {
+		if (types.length == 0)
+			throw new IllegalArgumentException("no fields");
+		this.types = types.clone();
+		prefixes = new int[types.length];
+		int width = 0;
+		for (int i = 0; i < types.length; i++) {
+			prefixes[i] = width;
+			width += types[i].width;
+		}
+		this.width = width;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(types);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof PaxLayout && Arrays.equals(types, ((PaxLayout) o).types);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(types);
+	}
+
+	/**
+	 * Returns the number of fields in the schema of this {@code PaxLayout}.
+	 * 
+	 * @return the number of fields in the schema of this {@code PaxLayout}
+	 */
+	public int fields() {
+		return types.length;
+	}
+
+	/**
+	 * Returns the number of records that fit in a {@code SlottedPage} of the specified size.
+	 * 
+	 * @param pageSize
+	 *            the size of a {@code SlottedPage} in bytes
+	 * @return the number of records that fit in a {@code SlottedPage} of the specified size
+	 */
+	public int capacity(int pageSize) {
+		// each record takes its width in the minipages and one bit in the bitmap
+		return ((pageSize - Integer.BYTES) * 8 - 7) / (width * 8 + 1);
+	}
+
+	/**
+	 * Adds the specified record in the specified {@code SlottedPage}.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param o
+	 *            a record
+	 * @return the index of the record in the {@code SlottedPage}
+	 * @throws IOException
+	 *             if the record does not match the schema of this {@code PaxLayout}
+	 * @throws OverflowException
+	 *             if the {@code SlottedPage} cannot accommodate another record
+	 */
+	int add(SlottedPage p, Object o) throws IOException, OverflowException {
+		Object[] record = check(o);
+		int count = p.entryCount();
+		if (count >= capacity(p.size))
+			throw p.new OverflowException();
+		write(p, count, record);
+		p.setEntryCount(count + 1);
+		return count;
+	}
+
+	/**
+	 * Adds the specified value in the specified {@code SlottedPage}, whose {@code PaxLayout} has a single {@code long}
+	 * or {@code int} field, without boxing it.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param value
+	 *            a value (truncated to an {@code int} if the field is an {@code int} field)
+	 * @return the index of the value in the {@code SlottedPage}
+	 * @throws OverflowException
+	 *             if the {@code SlottedPage} cannot accommodate another value
+	 */
+	int add(SlottedPage p, long value) throws OverflowException {
+		int count = p.entryCount();
+		if (count >= capacity(p.size))
+			throw p.new OverflowException();
+		int location = start(p.size, 0) + count * width;
+		if (width == Long.BYTES)
+			p.buffer.putLong(location, value);
+		else
+			p.buffer.putInt(location, (int) value);
+		setPresent(p, count, true);
+		p.setEntryCount(count + 1);
+		return count;
+	}
+
+	/**
+	 * Returns the value at the specified index in the specified {@code SlottedPage}, whose {@code PaxLayout} has a
+	 * single {@code long} or {@code int} field, without boxing it.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param index
+	 *            an index
+	 * @return the value at the specified index in the specified {@code SlottedPage}
+	 * @throws IndexOutOfBoundsException
+	 *             if an invalid index is given or the value at that index was removed
+	 */
+	long getLong(SlottedPage p, int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= p.entryCount() || !present(p, index))
+			throw p.new IndexOutOfBoundsException();
+		int location = start(p.size, 0) + index * width;
+		return width == Long.BYTES ? p.buffer.getLong(location) : p.buffer.getInt(location);
+	}
+
+	/**
+	 * Performs the specified action for each value stored in the specified {@code SlottedPage}, whose
+	 * {@code PaxLayout} is {@link #LONGS}. The values are read directly from the minipage, examining the bitmap 8
+	 * values at a time.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param action
+	 *            the action to perform for each value
+	 */
+	void forEachLong(SlottedPage p, LongConsumer action) {
+		ByteBuffer b = p.buffer;
+		int count = p.entryCount();
+		int start = start(p.size, 0);
+		for (int i = 0; i < count; i += 8) {
+			int bits = b.get(Integer.BYTES + (i >>> 3));
+			for (int j = 0, n = Math.min(8, count - i); j < n; j++)
+				if ((bits & (1 << j)) != 0)
+					action.accept(b.getLong(start + (i + j) * Long.BYTES));
+		}
+	}
+
+	/**
+	 * Performs the specified action for each value stored in the specified {@code SlottedPage}, whose
+	 * {@code PaxLayout} is {@link #INTS}. The values are read directly from the minipage, examining the bitmap 8
+	 * values at a time.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param action
+	 *            the action to perform for each value
+	 */
+	void forEachInt(SlottedPage p, IntConsumer action) {
+		ByteBuffer b = p.buffer;
+		int count = p.entryCount();
+		int start = start(p.size, 0);
+		for (int i = 0; i < count; i += 8) {
+			int bits = b.get(Integer.BYTES + (i >>> 3));
+			for (int j = 0, n = Math.min(8, count - i); j < n; j++)
+				if ((bits & (1 << j)) != 0)
+					action.accept(b.getInt(start + (i + j) * Integer.BYTES));
+		}
+	}
+
+	/**
+	 * Determines whether or not this {@code PaxLayout} has a single field of the specified type.
+	 * 
+	 * @param type
+	 *            a {@code Type}
+	 * @return {@code true} if this {@code PaxLayout} has a single field of the specified type; {@code false} otherwise
+	 */
+	public boolean isArrayOf(Type type) {
+		return types.length == 1 && types[0] == type;
+	}
+
+	/**
+	 * Inserts the specified record in the specified {@code SlottedPage}, reusing the place of a removed record if
+	 * possible.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param o
+	 *            a record
+	 * @return the index of the record in the {@code SlottedPage}
+	 * @throws IOException
+	 *             if the record does not match the schema of this {@code PaxLayout}
+	 * @throws OverflowException
+	 *             if the {@code SlottedPage} cannot accommodate another record
+	 */
+	int insert(SlottedPage p, Object o) throws IOException, OverflowException {
+		int index = freeSlot(p);
+		if (index < 0)
+			return add(p, o);
+		write(p, index, check(o));
+		return index;
+	}
+
+	/**
+	 * Returns the index of the first removed record in the specified {@code SlottedPage} ({@code -1} if no such
+	 * record).
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @return the index of the first removed record in the specified {@code SlottedPage}; {@code -1} if no such record
+	 */
+	int freeSlot(SlottedPage p) {
+		int count = p.entryCount();
+		for (int i = 0; i < count; i++)
+			if (!present(p, i))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Returns the number of additional records that the specified {@code SlottedPage} can accommodate, in bytes.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @return the number of bytes of the additional records that the specified {@code SlottedPage} can accommodate
+	 */
+	int freeSpaceSize(SlottedPage p) {
+		return (capacity(p.size) - p.entryCount()) * width;
+	}
+
+	/**
+	 * Returns the record at the specified index in the specified {@code SlottedPage} ({@code null} if that record was
+	 * removed).
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param index
+	 *            an index
+	 * @return the record at the specified index in the specified {@code SlottedPage}; {@code null} if that record was
+	 *         removed
+	 * @throws IndexOutOfBoundsException
+	 *             if an invalid index is given
+	 */
+	Object[] get(SlottedPage p, int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= p.entryCount())
+			throw p.new IndexOutOfBoundsException();
+		if (!present(p, index))
+			return null;
+		Object[] record = new Object[types.length];
+		for (int i = 0; i < types.length; i++)
+			record[i] = value(p, i, index);
+		return record;
+	}
+
+	/**
+	 * Puts the specified record at the specified index in the specified {@code SlottedPage}.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param index
+	 *            an index
+	 * @param o
+	 *            a record
+	 * @return the record stored previously at the specified index; {@code null} if no such record
+	 * @throws IOException
+	 *             if the record does not match the schema of this {@code PaxLayout}
+	 * @throws OverflowException
+	 *             if the {@code SlottedPage} cannot accommodate another record
+	 * @throws IndexOutOfBoundsException
+	 *             if an invalid index is given
+	 */
+	Object[] put(SlottedPage p, int index, Object o) throws IOException, OverflowException, IndexOutOfBoundsException {
+		if (index == p.entryCount()) {
+			add(p, o);
+			return null;
+		}
+		Object[] record = check(o);
+		Object[] old = get(p, index);
+		write(p, index, record);
+		return old;
+	}
+
+	/**
+	 * Removes the record at the specified index from the specified {@code SlottedPage}.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param index
+	 *            an index
+	 * @return the record stored previously at the specified index; {@code null} if no such record
+	 * @throws IndexOutOfBoundsException
+	 *             if an invalid index is given
+	 */
+	Object[] remove(SlottedPage p, int index) throws IndexOutOfBoundsException {
+		Object[] old = get(p, index);
+		if (old != null)
+			setPresent(p, index, false);
+		return old;
+	}
+
+	/**
+	 * Returns an iterator over the records stored in the specified {@code SlottedPage}.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @return an iterator over the records stored in the specified {@code SlottedPage}
+	 */
+	Iterator<Object> iterator(SlottedPage p) {
+		return new PaxIterator(p);
+	}
+
+	/**
+	 * Returns the values of the specified field in the records stored in the specified {@code SlottedPage}. Only the
+	 * bitmap and the minipage of that field are read.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param field
+	 *            the index of a field
+	 * @return the values of the specified field in the records stored in the specified {@code SlottedPage}
+	 */
+	List<Object> project(SlottedPage p, int field) {
+		int count = p.entryCount();
+		ArrayList<Object> values = new ArrayList<Object>(count);
+		for (int i = nextPresent(p, 0); i < count; i = nextPresent(p, i + 1))
+			values.add(value(p, field, i));
+		return values;
+	}
+
+	/**
+	 * Returns a read-only {@code ByteBuffer} over the minipage of the specified field in the specified
+	 * {@code SlottedPage}. The {@code ByteBuffer} holds the values of the field in all of the records of the
+	 * {@code SlottedPage} including removed ones (see {@link #present(SlottedPage, int)}) as a contiguous array of
+	 * primitive values. It shares the memory of the {@code SlottedPage} and thus must not be used after the
+	 * {@code SlottedPage} is updated or reused.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param field
+	 *            the index of a field
+	 * @return a read-only {@code ByteBuffer} over the minipage of the specified field in the specified
+	 *         {@code SlottedPage}
+	 */
+	public ByteBuffer column(SlottedPage p, int field) {
+		int start = start(p.size, field);
+		ByteBuffer b = p.buffer.asReadOnlyBuffer();
+		b.limit(start + p.entryCount() * types[field].width);
+		b.position(start);
+		return b.slice();
+	}
+
+	/**
+	 * Determines whether or not the record at the specified index in the specified {@code SlottedPage} has not been
+	 * removed.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param index
+	 *            the index of a record
+	 * @return {@code true} if the record has not been removed; {@code false} otherwise
+	 */
+	public boolean present(SlottedPage p, int index) {
+		return (p.buffer.get(Integer.BYTES + (index >>> 3)) & (1 << (index & 7))) != 0;
+	}
+
+	/**
+	 * Marks the record at the specified index in the specified {@code SlottedPage} as present or removed.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param index
+	 *            the index of a record
+	 * @param present
+	 *            {@code true} if the record is present; {@code false} if it is removed
+	 */
+	void setPresent(SlottedPage p, int index, boolean present) {
+		int location = Integer.BYTES + (index >>> 3);
+		int b = p.buffer.get(location);
+		b = present ? b | (1 << (index & 7)) : b & ~(1 << (index & 7));
+		p.buffer.put(location, (byte) b);
+	}
+
+	/**
+	 * Returns the index of the first present record at or after the specified index in the specified
+	 * {@code SlottedPage} (the number of records if no such record).
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param index
+	 *            an index
+	 * @return the index of the first present record at or after the specified index
+	 */
+	int nextPresent(SlottedPage p, int index) {
+		int count = p.entryCount();
+		while (index < count && !present(p, index))
+			index++;
+		return index;
+	}
+
+	/**
+	 * Returns the location of the minipage of the specified field in a {@code SlottedPage} of the specified size.
+	 * 
+	 * @param pageSize
+	 *            the size of a {@code SlottedPage} in bytes
+	 * @param field
+	 *            the index of a field
+	 * @return the location of the minipage of the specified field
+	 */
+	int start(int pageSize, int field) {
+		int capacity = capacity(pageSize);
+		return Integer.BYTES + (capacity + 7) / 8 + capacity * prefixes[field];
+	}
+
+	/**
+	 * Returns the value of the specified field in the record at the specified index in the specified
+	 * {@code SlottedPage}.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param field
+	 *            the index of a field
+	 * @param index
+	 *            the index of a record
+	 * @return the value of the specified field in the specified record
+	 */
+	Object value(SlottedPage p, int field, int index) {
+		Type type = types[field];
+		int location = start(p.size, field) + index * type.width;
+		switch (type) {
+		case INT:
+			return p.buffer.getInt(location);
+		case LONG:
+			return p.buffer.getLong(location);
+		default:
+			return p.buffer.getDouble(location);
+		}
+	}
+
+	/**
+	 * Writes the specified record at the specified index in the specified {@code SlottedPage} and marks it as
+	 * present.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @param index
+	 *            the index of a record
+	 * @param record
+	 *            a record that matches the schema of this {@code PaxLayout}
+	 */
+	void write(SlottedPage p, int index, Object[] record) {
+		for (int i = 0; i < types.length; i++) {
+			int location = start(p.size, i) + index * types[i].width;
+			switch (types[i]) {
+			case INT:
+				p.buffer.putInt(location, (Integer) record[i]);
+				break;
+			case LONG:
+				p.buffer.putLong(location, (Long) record[i]);
+				break;
+			default:
+				p.buffer.putDouble(location, (Double) record[i]);
+			}
+		}
+		setPresent(p, index, true);
+	}
+
+	/**
+	 * Verifies that the specified object is a record that matches the schema of this {@code PaxLayout}.
+	 * 
+	 * @param o
+	 *            an object
+	 * @return the specified object as a record
+	 * @throws IOException
+	 *             if the object is not a record that matches the schema of this {@code PaxLayout}
+	 */
+	Object[] check(Object o) throws IOException {
+		if (o instanceof Object[] && ((Object[]) o).length == types.length) {
+			Object[] record = (Object[]) o;
+			boolean matches = true;
+			for (int i = 0; i < types.length && matches; i++)
+				matches = types[i] == Type.INT ? record[i] instanceof Integer
+						: types[i] == Type.LONG ? record[i] instanceof Long : record[i] instanceof Double;
+			if (matches)
+				return record;
+		}
+		throw new IOException("not a record of schema " + this + ": " + o);
+	}
+
+	/**
+	 * A {@code PaxIterator} iterates over the records stored in a {@code SlottedPage} with a {@code PaxLayout},
+	 * assembling each record from the minipages only when it is returned.
+	 */
+	class PaxIterator implements Iterator<Object> {
+
+		/**
+		 * The {@code SlottedPage}.
+		 */
+		SlottedPage p;
+
+		/**
+		 * The index of the next record to return.
+		 */
+		int index;
+
+		/**
+		 * Constructs a {@code PaxIterator}.
+		 * 
+		 * @param p
+		 *            a {@code SlottedPage} with a {@code PaxLayout}
+		 */
+		PaxIterator(SlottedPage p) {
+			this.p = p;
+			index = nextPresent(p, 0);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < p.entryCount();
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Object[] record = new Object[types.length];
+			for (int i = 0; i < types.length; i++)
+				record[i] = value(p, i, index);
+			index = nextPresent(p, index + 1);
+			return record;
+		}
+
+	}
+
+}
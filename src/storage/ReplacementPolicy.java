@@ -0,0 +1,68 @@
+package storage;
+
+import java.util.function.IntPredicate;
+
+/**
+ * A {@code ReplacementPolicy} decides which frame of a buffer to reuse when no frame is free. Frames are identified by
+ * their numbers ({@code 0} through the number of frames minus {@code 1}).
+ * 
+ * {@link #accessed(int)} may be invoked by multiple threads at the same time, while the other methods are invoked by
+ * one thread at a time (while the buffer holds its eviction lock).
+ */
+public interface ReplacementPolicy {
+
+	/**
+	 * Prepares this {@code ReplacementPolicy} for a buffer consisting of the specified number of frames. Any
+	 * information about the frames is discarded.
+	 * 
+	 * @param frames
+	 *            the number of frames in the buffer
+	 */
+	void resize(int frames);
+
+	/**
+	 * Is invoked whenever the {@code SlottedPage} in the specified frame is accessed (including when that
+	 * {@code SlottedPage} is placed in the frame).
+	 * 
+	 * @param frame
+	 *            a frame number
+	 */
+	void accessed(int frame);
+
+	/**
+	 * Is invoked when the specified frame becomes free.
+	 * 
+	 * @param frame
+	 *            a frame number
+	 */
+	void removed(int frame);
+
+	/**
+	 * Returns the frame whose {@code SlottedPage} should be evicted next ({@code -1} if no frame is in use).
+	 * 
+	 * @return the frame whose {@code SlottedPage} should be evicted next; {@code -1} if no frame is in use
+	 */
+	default int victim() {
+		return victim(frame -> true);
+	}
+
+	/**
+	 * Returns the frame whose {@code SlottedPage} should be evicted next among the frames satisfying the specified
+	 * condition ({@code -1} if no such frame is in use).
+	 * 
+	 * @param evictable
+	 *            the condition that the chosen frame must satisfy (e.g., not being pinned)
+	 * @return the frame whose {@code SlottedPage} should be evicted next among the frames satisfying the specified
+	 *         condition; {@code -1} if no such frame is in use
+	 */
+	int victim(IntPredicate evictable);
+
+	/**
+	 * Returns the frames in use in the order in which they would currently be chosen for eviction. The result is a
+	 * snapshot that may be approximate if frames are accessed meanwhile.
+	 * 
+	 * @return the frames in use in the order in which they would currently be chosen for eviction
+	 */
+	int[] evictionOrder();
+
+}
@@ -0,0 +1,49 @@
+package storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@code SerializationCodec} represents objects using Java serialization. Every object then carries a stream header
+ * and a class descriptor, but any {@code Serializable} object can be stored.
+ */
+public class SerializationCodec implements Codec {
+
+	@Override
+	public byte[] encode(Object o) throws IOException {
+		ByteArrayOutputStream b = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(b);
+		out.writeObject(o);
+		out.flush();
+		return b.toByteArray();
+	}
+
+	@Override
+	public Object decode(ByteBuffer b, int offset, int length) throws IOException {
+		try {
+			return new ObjectInputStream(new ByteBufferInputStream(b, offset, length)).readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes that represent the object at the specified offset in the specified
+	 * {@code ByteBuffer}. Since a Java serialization stream is not preceded by its length, the object is read to find
+	 * where the stream ends.
+	 */
+	@Override
+	public int length(ByteBuffer b, int offset, int length) throws IOException {
+		ByteBufferInputStream in = new ByteBufferInputStream(b, offset, length);
+		try {
+			new ObjectInputStream(in).readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+		return in.position - offset;
+	}
+
+}
@@ -1,19 +1,54 @@
 package storage;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.time.LocalDateTime;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
  
 
 /**
- * A {@code SlottedPage} can store objects of possibly different sizes in a byte array.
+ * A {@code SlottedPage} can store objects of possibly different sizes in a byte array. The bytes are accessed through
+ * a {@code ByteBuffer}, which either wraps a byte array owned by the {@code SlottedPage} or is a view over a region of
+ * memory owned by a buffer (possibly outside the Java heap).
+ * 
+ * The end location of the free space is kept in the {@code SlottedPage} and updated as objects are saved, so that it
+ * is found by examining every location at most once after the data of the {@code SlottedPage} is read.
+ * 
+ * Objects are converted into bytes and back by the {@code Codec} of the {@code SlottedPage}. A {@code SlottedPage}
+ * created on its own uses Java serialization unless another {@code Codec} is given, whereas a {@code SlottedPage}
+ * created or read by a {@code SlottedPageFile} uses the {@code Codec} of that file.
+ * 
+ * The size of a {@code SlottedPage} is chosen when it is created (see {@link #SIZE} for the default), and all of the
+ * {@code SlottedPage}s in a file have the same size.
+ * 
+ * The slots of removed objects form a chain through the header: the slot of a removed object stores
+ * {@code -(i + 2)}, where {@code i} is the index of the next free slot ({@code -1} at the end of the chain), so any
+ * negative location denotes a removed object as before. {@link #add(Object)} always appends a new slot, whereas
+ * {@link #insert(Object)} first reuses free slots. The first free slot is kept in the {@code SlottedPage} and the chain
+ * is rebuilt by examining every slot once after the data of the {@code SlottedPage} is read.
+ * 
+ * An object too large for an empty {@code SlottedPage} is stored in a chain of overflow pages, and its slot holds an
+ * {@code OverflowPointer} instead (see {@link FileManager#add(int, Object)}). An overflow page is marked by an entry
+ * count of {@link #OVERFLOW_PAGE}, followed by the ID of the next overflow page ({@code -1} at the end of the chain),
+ * the number of bytes in the overflow page, and those bytes. An overflow page holds no slots, so it is skipped when
+ * objects are iterated over, and no object can be added to it.
+ * 
+ * A {@code SlottedPage} with dense slots (see {@link SlottedPageFile#setDenseSlots(boolean)}) stores its entry count
+ * and each location in 2 bytes instead of 4. The highest bit of a dense slot marks a removed object, so the slots also
+ * serve as a bitmap of removed objects, and the remaining 15 bits hold either the location of an object or, for a
+ * removed object, the link in the chain of free slots. Dense slots are thus available only for {@code SlottedPage}s
+ * of at most {@link #MAX_DENSE_SIZE} bytes.
+ * 
+ * A {@code SlottedPage} given a {@code PaxLayout} stores records of a fixed schema column by column instead, and its
+ * methods for adding, reading, and removing objects are carried out by that {@code PaxLayout}.
  * 
  * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
  */
@@ -25,25 +60,88 @@ public class SlottedPage implements Iterable<Object> {
 	int pageID;
 
 	/**
-	 * A byte array for storing the header of this {@code SlottedPage} and objects.
+	 * A {@code ByteBuffer} for storing the header of this {@code SlottedPage} and objects.
 	 */
-	byte[] data;
+	ByteBuffer buffer;
 
 	/**
-	 * The default size of {@code SlottedPage}s.
+	 * The default size of {@code SlottedPage}s, which is also the size of the {@code SlottedPage}s in files created
+	 * before the page size was stored in each file.
 	 */
 	static int SIZE = 4096 / 2;
 
+	/**
+	 * The smallest size of {@code SlottedPage}s.
+	 */
+	public static final int MIN_SIZE = 1024;
+
+	/**
+	 * The largest size of {@code SlottedPage}s with dense slots.
+	 */
+	public static final int MAX_DENSE_SIZE = 32 * 1024;
+
+	/**
+	 * The entry count that marks an overflow page.
+	 */
+	static final int OVERFLOW_PAGE = -1;
+
+	/**
+	 * The size of the header of an overflow page.
+	 */
+	static final int OVERFLOW_HEADER_SIZE = 3 * Integer.BYTES;
+
+	/**
+	 * The largest size of {@code SlottedPage}s.
+	 */
+	public static final int MAX_SIZE = 64 * 1024;
+
+	/**
+	 * The size of this {@code SlottedPage} in bytes.
+	 */
+	int size;
+
+	/**
+	 * The {@code Codec} used by {@code SlottedPage}s unless another {@code Codec} is given.
+	 */
+	static final Codec DEFAULT_CODEC = new SerializationCodec();
+
+	/**
+	 * The {@code Codec} that converts objects into the bytes stored in this {@code SlottedPage} and back.
+	 */
+	Codec codec = DEFAULT_CODEC;
+
+	/**
+	 * The {@code PaxLayout} of this {@code SlottedPage} ({@code null} if objects are stored in slots).
+	 */
+	PaxLayout layout = null;
+
+	/**
+	 * A flag indicating whether or not the entry count and the slots of this {@code SlottedPage} take 2 bytes each.
+	 */
+	boolean dense = false;
+
 	/**
 	 * A flag indicating whether or not this {@code SlottedPage} has been updated and thus needs to be saved on disk.
 	 */
-	boolean dirty = true;
-    
+	volatile boolean dirty = true;
+
 	/**
-     * last time this SlottedPage was accessed
-     */
-	LocalDateTime lastAccessed; 
-	
+	 * The end location of the free space in this {@code SlottedPage} ({@code -1} if not known yet).
+	 */
+	int endOfFreeSpace;
+
+	/**
+	 * The index of the first free slot in this {@code SlottedPage} ({@code -1} if no such slot; {@code -2} if not
+	 * known yet).
+	 */
+	int freeSlot = -1;
+
+	/**
+	 * The frame of the buffer that holds this {@code SlottedPage} ({@code -1} if this {@code SlottedPage} has never
+	 * been placed in a buffer).
+	 */
+	int frame = -1;
+
 	/**
 	 * Constructs a {@code SlottedPage}.
 	 * 
@@ -51,10 +149,101 @@ public class SlottedPage implements Iterable<Object> {
 	 *            the ID of the {@code SlottedPage}
 	 */
 	public SlottedPage(int pageID) {
-		data = new byte[SIZE];
+		this(pageID, ByteBuffer.wrap(new byte[SIZE]));
+	}
+
+	/**
+	 * Constructs a {@code SlottedPage} that uses the specified {@code Codec}.
+	 * 
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @param codec
+	 *            the {@code Codec} that converts objects into the bytes stored in the {@code SlottedPage} and back
+	 */
+	public SlottedPage(int pageID, Codec codec) {
+		this(pageID, SIZE, codec);
+	}
+
+	/**
+	 * Constructs a {@code SlottedPage} of the specified size that uses the specified {@code Codec}.
+	 * 
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @param size
+	 *            the size of the {@code SlottedPage} in bytes
+	 * @param codec
+	 *            the {@code Codec} that converts objects into the bytes stored in the {@code SlottedPage} and back
+	 * @throws IllegalArgumentException
+	 *             if the size is not a power of 2 between {@link #MIN_SIZE} and {@link #MAX_SIZE}
+	 */
+	public SlottedPage(int pageID, int size, Codec codec) {
+		this(pageID, ByteBuffer.wrap(new byte[checkSize(size)]), size);
+		this.codec = codec;
+	}
+
+	/**
+	 * Constructs a {@code SlottedPage} of the specified size that stores records using the specified
+	 * {@code PaxLayout}.
+	 * 
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @param size
+	 *            the size of the {@code SlottedPage} in bytes
+	 * @param codec
+	 *            the {@code Codec} that converts records into bytes for {@link #getRaw(int)}
+	 * @param layout
+	 *            the {@code PaxLayout} of the {@code SlottedPage} ({@code null} to store objects in slots)
+	 * @throws IllegalArgumentException
+	 *             if the size is not a power of 2 between {@link #MIN_SIZE} and {@link #MAX_SIZE}
+	 */
+	public SlottedPage(int pageID, int size, Codec codec, PaxLayout layout) {
+		this(pageID, size, codec);
+		this.layout = layout;
+	}
+
+	/**
+	 * Constructs a {@code SlottedPage} that stores its data in the specified {@code ByteBuffer}.
+	 * 
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @param buffer
+	 *            a {@code ByteBuffer} whose first {@link #SIZE} bytes are used by the {@code SlottedPage}
+	 */
+	public SlottedPage(int pageID, ByteBuffer buffer) {
+		this(pageID, buffer, SIZE);
+	}
+
+	/**
+	 * Constructs a {@code SlottedPage} of the specified size that stores its data in the specified {@code ByteBuffer}.
+	 * 
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @param buffer
+	 *            a {@code ByteBuffer} whose first {@code size} bytes are used by the {@code SlottedPage}
+	 * @param size
+	 *            the size of the {@code SlottedPage} in bytes
+	 */
+	public SlottedPage(int pageID, ByteBuffer buffer, int size) {
+		this.buffer = buffer;
 		this.pageID = pageID;
+		this.size = size;
+		endOfFreeSpace = size;
 		setEntryCount(0);
-		lastAccessed = LocalDateTime.now();
+	}
+
+	/**
+	 * Verifies that the specified size is a power of 2 between {@link #MIN_SIZE} and {@link #MAX_SIZE}.
+	 * 
+	 * @param size
+	 *            a page size in bytes
+	 * @return the specified size
+	 * @throws IllegalArgumentException
+	 *             if the size is not a power of 2 between {@link #MIN_SIZE} and {@link #MAX_SIZE}
+	 */
+	public static int checkSize(int size) {
+		if (size < MIN_SIZE || size > MAX_SIZE || Integer.bitCount(size) != 1)
+			throw new IllegalArgumentException("invalid page size: " + size);
+		return size;
 	}
 
 	/**
@@ -65,32 +254,105 @@ public class SlottedPage implements Iterable<Object> {
 	public int pageID() {
 		return pageID;
 	}
+
+	/**
+	 * Returns the size of this {@code SlottedPage} in bytes.
+	 * 
+	 * @return the size of this {@code SlottedPage} in bytes
+	 */
+	public int size() {
+		return size;
+	}
+
 	/**
-	 * returns the last accessed date of this {@code SlottedPage}.
-	 * @return the last accessed date of this {@code SlottedPage}
+	 * Returns the {@code PaxLayout} of this {@code SlottedPage}.
+	 * 
+	 * @return the {@code PaxLayout} of this {@code SlottedPage}; {@code null} if objects are stored in slots
 	 */
-	public LocalDateTime lastAccessed()
-	{
-		return lastAccessed;
+	public PaxLayout layout() {
+		return layout;
 	}
-	
-	
-	public void Accessed()
-	{
-		lastAccessed =LocalDateTime.now();
+
+	/**
+	 * Determines whether or not this {@code SlottedPage} has dense slots.
+	 * 
+	 * @return {@code true} if the entry count and the slots of this {@code SlottedPage} take 2 bytes each;
+	 *         {@code false} if they take 4 bytes each
+	 */
+	public boolean denseSlots() {
+		return dense;
 	}
-	
-	
-	
+
 	/**
-	 * Returns the byte array of this {@code SlottedPage}.
+	 * Returns the byte array of this {@code SlottedPage} (a copy of the data if this {@code SlottedPage} is not backed
+	 * by a byte array).
 	 * 
 	 * @return the byte array of this {@code SlottedPage}
 	 */
 	public byte[] data() {
+		if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.array().length == size)
+			return buffer.array();
+		byte[] data = new byte[size];
+		ByteBuffer d = buffer.duplicate();
+		d.clear().limit(size);
+		d.get(data);
 		return data;
 	}
 
+	/**
+	 * Returns the {@code ByteBuffer} of this {@code SlottedPage}.
+	 * 
+	 * @return the {@code ByteBuffer} of this {@code SlottedPage}
+	 */
+	public ByteBuffer buffer() {
+		return buffer;
+	}
+
+	/**
+	 * Copies the data of this {@code SlottedPage} from the specified byte array.
+	 * 
+	 * @param b
+	 *            a byte array
+	 * @param offset
+	 *            the offset in the byte array of the data of this {@code SlottedPage}
+	 */
+	void copy(byte[] b, int offset) {
+		ByteBuffer dst = buffer.duplicate();
+		dst.clear();
+		dst.put(b, offset, size);
+		invalidate();
+	}
+
+	/**
+	 * Forgets the end location of the free space and the first free slot in this {@code SlottedPage} after its data
+	 * is replaced.
+	 */
+	void invalidate() {
+		endOfFreeSpace = -1;
+		freeSlot = -2;
+	}
+
+	/**
+	 * Makes this {@code SlottedPage} a copy of the specified {@code SlottedPage}.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 */
+	void copy(SlottedPage p) {
+		pageID = p.pageID;
+		size = p.size;
+		codec = p.codec;
+		layout = p.layout;
+		dense = p.dense;
+		endOfFreeSpace = p.endOfFreeSpace;
+		freeSlot = p.freeSlot;
+		ByteBuffer src = p.buffer.duplicate();
+		src.clear().limit(size);
+		ByteBuffer dst = buffer.duplicate();
+		dst.clear();
+		dst.put(src);
+	}
+
 	@Override
 	public String toString() {
 		String s = "";
@@ -114,14 +376,87 @@ public class SlottedPage implements Iterable<Object> {
 	 *             if this {@code SlottedPage} cannot accommodate the specified object
 	 */
 	public int add(Object o) throws IOException, OverflowException {
+		if (layout != null)
+			return layout.add(this, o);
 		int svindex = 0;
 		int cnt   = entryCount();
+		if (cnt == OVERFLOW_PAGE)
+			throw new OverflowException();
 		svindex = save(o);
 		saveLocation(cnt,svindex);
 		setEntryCount(cnt+1);
 		return cnt;
 	}
 
+	/**
+	 * Adds the specified objects in this {@code SlottedPage}, starting from the object at the specified position and
+	 * stopping at the first object that does not fit. The objects are given consecutive indexes starting from the
+	 * number of entries in this {@code SlottedPage} before they are added.
+	 * 
+	 * @param objects
+	 *            a list of objects
+	 * @param from
+	 *            the position in the list of the first object to add
+	 * @return the position in the list of the first object not added (the size of the list if all of the objects
+	 *         from the specified position are added)
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public int addAll(List<?> objects, int from) throws IOException {
+		for (; from < objects.size(); from++)
+			try {
+				add(objects.get(from));
+			} catch (OverflowException e) {
+				break;
+			}
+		return from;
+	}
+
+	/**
+	 * Inserts the specified object in this {@code SlottedPage}, reusing the slot of a removed object if possible.
+	 * Unlike {@link #add(Object)}, the header of this {@code SlottedPage} grows only when no slot is free.
+	 * 
+	 * @param o
+	 *            an object to insert
+	 * @return the index of the object in this {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 * @throws OverflowException
+	 *             if this {@code SlottedPage} cannot accommodate the specified object
+	 */
+	public int insert(Object o) throws IOException, OverflowException {
+		if (layout != null)
+			return layout.insert(this, o);
+		int index = freeSlot();
+		if (index < 0)
+			return add(o);
+		int next = -2 - getLocation(index);
+		int location = save(o, 0);
+		freeSlot = next;
+		saveLocation(index, location);
+		return index;
+	}
+
+	/**
+	 * Returns the index of the first free slot in this {@code SlottedPage} ({@code -1} if no such slot).
+	 * 
+	 * @return the index of the first free slot in this {@code SlottedPage}; {@code -1} if no such slot
+	 */
+	int freeSlot() {
+		if (layout != null)
+			return layout.freeSlot(this);
+		if (freeSlot != -2)
+			return freeSlot;
+		int next = -1;
+		for (int i = entryCount() - 1; i >= 0; i--)
+			if (getLocation(i) < 0) {
+				saveLocation(i, -2 - next);
+				next = i;
+			}
+		freeSlot = next;
+		return next;
+	}
+
 	/**
 	 * Returns the object at the specified index in this {@code SlottedPage} ({@code null} if that object was removed
 	 * from this {@code SlottedPage}).
@@ -136,6 +471,8 @@ public class SlottedPage implements Iterable<Object> {
 	 *             if an I/O error occurs
 	 */
 	public Object get(int index) throws IndexOutOfBoundsException, IOException {
+		if (layout != null)
+			return layout.get(this, index);
 		if(index<0|| index>= entryCount())
 		{
 			throw new IndexOutOfBoundsException();
@@ -144,11 +481,55 @@ public class SlottedPage implements Iterable<Object> {
 		int loc =getLocation( index);
 		if(loc>0)
 		{
-			retval =toObject( data,loc);
+			retval =toObject(buffer,loc);
 		}
 		return retval;
 	}
 
+	/**
+	 * Returns a read-only {@code ByteBuffer} over the bytes of the object at the specified index in this
+	 * {@code SlottedPage} ({@code null} if that object was removed from this {@code SlottedPage}). The object is
+	 * neither copied nor deserialized; the returned {@code ByteBuffer} starts at position {@code 0} and its limit is
+	 * the number of bytes of the object. The {@code ByteBuffer} shares the memory of this {@code SlottedPage} and thus
+	 * must not be used after this {@code SlottedPage} is updated or reused.
+	 * 
+	 * @param index
+	 *            an index
+	 * @return a read-only {@code ByteBuffer} over the bytes of the object at the specified index in this
+	 *         {@code SlottedPage}; {@code null} if that object was removed from this {@code SlottedPage}
+	 * @throws IndexOutOfBoundsException
+	 *             if an invalid index is given
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public ByteBuffer getRaw(int index) throws IndexOutOfBoundsException, IOException {
+		if (layout != null) { // a record is stored across minipages and thus is encoded
+			Object[] record = layout.get(this, index);
+			return record == null ? null : ByteBuffer.wrap(codec.encode(record)).asReadOnlyBuffer();
+		}
+		if (index < 0 || index >= entryCount())
+			throw new IndexOutOfBoundsException();
+		int location = getLocation(index);
+		return location > 0 ? raw(location) : null;
+	}
+
+	/**
+	 * Returns a read-only {@code ByteBuffer} over the bytes of the object at the specified location in this
+	 * {@code SlottedPage}.
+	 * 
+	 * @param location
+	 *            the location of an object
+	 * @return a read-only {@code ByteBuffer} over the bytes of the object at the specified location
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	ByteBuffer raw(int location) throws IOException {
+		ByteBuffer b = buffer.asReadOnlyBuffer();
+		b.limit(location + length(location));
+		b.position(location);
+		return b.slice();
+	}
+
 	/**
 	 * Puts the specified object at the specified index in this {@code SlottedPage}.
 	 * 
@@ -166,12 +547,25 @@ public class SlottedPage implements Iterable<Object> {
 	 *             if an invalid index is used
 	 */
 	public Object put(int index, Object o) throws IOException, OverflowException, IndexOutOfBoundsException {
+		if (layout != null)
+			return layout.put(this, index, o);
 		if (index == entryCount()) {
 			add(o);
 			return null;
 		}
-		Object old = remove(index);
-		saveLocation(index, save(o));
+		Object old = get(index);
+		int location = getLocation(index);
+		if (location < 0)
+			freeSlot = -2; // the slot will leave the chain of free slots
+		else if (location == endOfFreeSpace)
+			endOfFreeSpace = -1; // the free space may now extend further
+		saveLocation(index, -1); // the previous object can be compacted away (the slot stays out of the chain)
+		try {
+			saveLocation(index, save(o, 0));
+		} catch (OverflowException e) { // restores the previous object, which fits since it was stored before
+			saveLocation(index, old == null ? -1 : save(old, 0));
+			throw e;
+		}
 		return old;
 	}
 
@@ -188,9 +582,21 @@ public class SlottedPage implements Iterable<Object> {
 	 *             if an I/O error occurs
 	 */
 	public Object remove(int index) throws IndexOutOfBoundsException, IOException {
+		if (layout != null)
+			return layout.remove(this, index);
 		Object retval = null;
 		retval = get( index);
-		saveLocation(index,-1);
+		int location = getLocation(index);
+		if (location < 0)
+			return null; // already removed (and thus in the chain of free slots)
+		if (location == endOfFreeSpace)
+			endOfFreeSpace = -1; // the free space may now extend further
+		if (freeSlot == -2)
+			saveLocation(index, -1); // linked when the chain is rebuilt
+		else {
+			saveLocation(index, -2 - freeSlot);
+			freeSlot = index;
+		}
 		return retval;
 	}
 
@@ -199,57 +605,88 @@ public class SlottedPage implements Iterable<Object> {
 	 */
 	@Override
 	public Iterator<Object> iterator() {
-		// TODO complete this method (10 points)
-		return new SlottedPageIterator(this);
+		if (layout != null)
+			return layout.iterator(this);
+		return new SlottedPageIterator();
+	}
+
+	/**
+	 * Returns a {@code Spliterator} over all objects stored in this {@code SlottedPage}.
+	 */
+	@Override
+	public Spliterator<Object> spliterator() {
+		if (layout != null)
+			return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL);
+		return new SlottedPageSpliterator(0, Math.max(0, entryCount()));
+	}
+
+	/**
+	 * Returns a sequential {@code Stream} of all objects stored in this {@code SlottedPage}.
+	 * 
+	 * @return a sequential {@code Stream} of all objects stored in this {@code SlottedPage}
+	 */
+	public Stream<Object> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Returns a {@code Cursor} positioned before the first slot of this {@code SlottedPage}.
+	 * 
+	 * @return a {@code Cursor} positioned before the first slot of this {@code SlottedPage}
+	 * @throws UnsupportedOperationException
+	 *             if this {@code SlottedPage} has a {@code PaxLayout} and thus has no slots
+	 */
+	public Cursor cursor() {
+		if (layout != null)
+			throw new UnsupportedOperationException("no slots in a page with a PAX layout");
+		return new Cursor();
 	}
 
 	/**
-	 * Reorganizes this {@code SlottedPage} to maximize its free space.
+	 * Copies the bytes of this {@code SlottedPage} into the specified {@code SlottedPage} (or a new one if it is
+	 * {@code null} or too small), so that the objects can still be iterated over lazily after this
+	 * {@code SlottedPage} is updated or its memory is reused.
+	 * 
+	 * @param copy
+	 *            a {@code SlottedPage} to reuse ({@code null} to create a new one)
+	 * @return a copy of this {@code SlottedPage}
+	 */
+	SlottedPage copyInto(SlottedPage copy) {
+		if (copy == null || copy.buffer.capacity() < size)
+			copy = new SlottedPage(pageID, size, codec, layout);
+		copy.copy(this);
+		return copy;
+	}
+
+	/**
+	 * Reorganizes this {@code SlottedPage} to maximize its free space. The bytes of the objects are moved toward the end
+	 * of this {@code SlottedPage} in decreasing order of their locations, so each object is moved at most once and no
+	 * object is deserialized. The {@code Codec} of this {@code SlottedPage} only determines where each object ends.
 	 * 
 	 * @throws IOException
 	 *             if an I/O error occurs
 	 */
 	protected void compact() throws IOException {
 		int count = entryCount();
-		
-		Object [] objs = new Object[count];
-		for (int i = 0; i < count; i++) 
-		{
+		long[] slots = new long[count]; // the location of each object in the higher half and its index in the lower
+		int n = 0;
+		for (int i = 0; i < count; i++) {
 			int location = getLocation(i);
-			if (location != -1) 
-			{
-				// get the object and store the object
-				try 
-				{
-					objs[i] =get(i);
-				}
-				catch(IndexOutOfBoundsException iex)
-				{
-					// this should never happen
-					objs[i]=null;
-				}
-			}
-			else
-			{
-				objs[i]=null;
-			}
-			saveLocation(i,-1);
+			if (location > 0)
+				slots[n++] = ((long) location << 32) | i;
 		}
-		// put eveything back
-		for (int i = 0; i < count; i++) 
-		{
-			if (objs[i] ==null)
-			{
-				saveLocation(i,-1);
-			}
-			else
-			{
-				byte[] b = toByteArray(objs[i]);
-				int loc = endOfFreeSpace() - b.length;
-				System.arraycopy(b, 0, data, loc, b.length);
-				saveLocation(i,loc);
+		Arrays.sort(slots, 0, n);
+		int end = size;
+		for (int k = n - 1; k >= 0; k--) {
+			int location = (int) (slots[k] >>> 32);
+			int length = length(location);
+			end -= length;
+			if (end != location) {
+				move(location, end, length);
+				saveLocation((int) slots[k], end);
 			}
 		}
+		endOfFreeSpace = end;
 	}
 
 	/**
@@ -264,14 +701,33 @@ public class SlottedPage implements Iterable<Object> {
 	 *             if an I/O error occurs
 	 */
 	protected int save(Object o) throws OverflowException, IOException {
+		return save(o, slotSize());
+	}
+
+	/**
+	 * Saves the specified object in the free space of this {@code SlottedPage}, leaving room for the specified number
+	 * of additional header bytes.
+	 * 
+	 * @param o
+	 *            an object
+	 * @param headerGrowth
+	 *            the number of bytes by which the header will grow ({@code 0} if the object replaces another)
+	 * @return the location at which the object is saved within this {@code SlottedPage}
+	 * @throws OverflowException
+	 *             if this {@code SlottedPage} cannot accommodate the specified object
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	protected int save(Object o, int headerGrowth) throws OverflowException, IOException {
 		byte[] b = toByteArray(o);
-		if (freeSpaceSize() < b.length + Integer.BYTES) {
+		if (freeSpaceSize() < b.length + headerGrowth) {
 			compact();
-			if (freeSpaceSize() < b.length + Integer.BYTES)
+			if (freeSpaceSize() < b.length + headerGrowth)
 				throw new OverflowException();
 		}
 		int location = endOfFreeSpace() - b.length;
-		System.arraycopy(b, 0, data, location, b.length);
+		write(location, b);
+		endOfFreeSpace = location;
 		return location;
 
 	}
@@ -282,7 +738,7 @@ public class SlottedPage implements Iterable<Object> {
 	 * @return the number of entries in this {@code SlottedPage}
 	 */
 	protected int entryCount() {
-		return readInt(0);
+		return dense ? buffer.getShort(0) : readInt(0);
 	}
 
 	/**
@@ -292,7 +748,10 @@ public class SlottedPage implements Iterable<Object> {
 	 *            the number of entries in this {@code SlottedPage}
 	 */
 	protected void setEntryCount(int count) {
-		writeInt(0, count);
+		if (dense)
+			buffer.putShort(0, (short) count);
+		else
+			writeInt(0, count);
 	}
 
 	/**
@@ -303,7 +762,10 @@ public class SlottedPage implements Iterable<Object> {
 	 * @return the start location of the specified object within this {@code SlottedPage}
 	 */
 	protected int getLocation(int index) {
-		return readInt((index + 1) * Integer.BYTES);
+		if (!dense)
+			return readInt((index + 1) * Integer.BYTES);
+		int slot = buffer.getShort((index + 1) * Short.BYTES);
+		return slot < 0 ? -1 - (slot & 0x7FFF) : slot; // -1 and -(i + 2) are kept as 0 and i + 1 with the highest bit
 	}
 
 	/**
@@ -315,7 +777,19 @@ public class SlottedPage implements Iterable<Object> {
 	 *            a location within this {@code SlottedPage}
 	 */
 	protected void saveLocation(int index, int location) {
-		writeInt((index + 1) * Integer.BYTES, location);
+		if (dense)
+			buffer.putShort((index + 1) * Short.BYTES, (short) (location < 0 ? 0x8000 | (-1 - location) : location));
+		else
+			writeInt((index + 1) * Integer.BYTES, location);
+	}
+
+	/**
+	 * Returns the number of bytes of each slot in this {@code SlottedPage}.
+	 * 
+	 * @return the number of bytes of each slot in this {@code SlottedPage}
+	 */
+	int slotSize() {
+		return dense ? Short.BYTES : Integer.BYTES;
 	}
 
 	/**
@@ -324,6 +798,8 @@ public class SlottedPage implements Iterable<Object> {
 	 * @return the size of free space in this {@code SlottedPage}
 	 */
 	public int freeSpaceSize() {
+		if (layout != null)
+			return layout.freeSpaceSize(this);
 		return endOfFreeSpace() - headerSize();
 	}
 
@@ -333,7 +809,7 @@ public class SlottedPage implements Iterable<Object> {
 	 * @return the size of the header in this {@code SlottedPage}
 	 */
 	protected int headerSize() {
-		return Integer.BYTES * (entryCount() + 1);
+		return slotSize() * (entryCount() + 1);
 	}
 
 	/**
@@ -342,14 +818,17 @@ public class SlottedPage implements Iterable<Object> {
 	 * @return the end location of the free space in this {@code SlottedPage}
 	 */
 	protected int endOfFreeSpace() {
-		int end = SIZE;
+		if (endOfFreeSpace >= 0)
+			return endOfFreeSpace;
+		int end = size;
 		int count = entryCount();
 		for (int i = 0; i < count; i++) {
 			int location = getLocation(i);
-			if (location != -1) {
+			if (location > 0) {
 				end = Math.min(end, location);
 			}
 		}
+		endOfFreeSpace = end;
 		return end;
 	}
 
@@ -362,10 +841,7 @@ public class SlottedPage implements Iterable<Object> {
 	 *            the value to write
 	 */
 	protected void writeInt(int location, int value) {
-		data[location] = (byte) (value >>> 24);
-		data[location + 1] = (byte) (value >>> 16);
-		data[location + 2] = (byte) (value >>> 8);
-		data[location + 3] = (byte) value;
+		buffer.putInt(location, value);
 	}
 
 	/**
@@ -376,8 +852,49 @@ public class SlottedPage implements Iterable<Object> {
 	 * @return an integer read at the specified location in the byte array of this {@code SlottedPage}
 	 */
 	protected int readInt(int location) {
-		return ((data[location]) << 24) + ((data[location + 1] & 0xFF) << 16) + ((data[location + 2] & 0xFF) << 8)
-				+ (data[location + 3] & 0xFF);
+		return buffer.getInt(location);
+	}
+
+	/**
+	 * Writes the specified bytes at the specified location in the byte array of this {@code SlottedPage}.
+	 * 
+	 * @param location
+	 *            a location in the byte array of this {@code SlottedPage}
+	 * @param b
+	 *            the bytes to write
+	 */
+	protected void write(int location, byte[] b) {
+		if (buffer.hasArray())
+			System.arraycopy(b, 0, buffer.array(), buffer.arrayOffset() + location, b.length);
+		else {
+			ByteBuffer d = buffer.duplicate();
+			d.position(location);
+			d.put(b);
+		}
+	}
+
+	/**
+	 * Moves the specified number of bytes within this {@code SlottedPage}. The source and destination regions may
+	 * overlap.
+	 * 
+	 * @param from
+	 *            the location of the bytes to move
+	 * @param to
+	 *            the location to which the bytes are moved
+	 * @param length
+	 *            the number of bytes to move
+	 */
+	protected void move(int from, int to, int length) {
+		if (buffer.hasArray())
+			System.arraycopy(buffer.array(), buffer.arrayOffset() + from, buffer.array(), buffer.arrayOffset() + to,
+					length);
+		else {
+			byte[] b = new byte[length];
+			ByteBuffer d = buffer.duplicate();
+			d.position(from);
+			d.get(b);
+			write(to, b);
+		}
 	}
 
 	/**
@@ -390,34 +907,98 @@ public class SlottedPage implements Iterable<Object> {
 	 *             if an I/O error occurs
 	 */
 	protected byte[] toByteArray(Object o) throws IOException {
-		ByteArrayOutputStream b = new ByteArrayOutputStream();
-		ObjectOutputStream out = new ObjectOutputStream(b);
-		out.writeObject(o);
-		out.flush();
-		return b.toByteArray();
+		if (o instanceof OverflowPointer)
+			return ((OverflowPointer) o).toByteArray();
+		return codec.encode(o);
 	}
 
 	/**
-	 * Returns an object created from the specified byte array.
+	 * Returns an object created from the specified {@code ByteBuffer}.
 	 * 
 	 * @param b
-	 *            a byte array
+	 *            a {@code ByteBuffer}
 	 * @param offset
-	 *            the offset in the byte array of the first byte to read
-	 * @return an object created from the specified byte array
+	 *            the offset in the {@code ByteBuffer} of the first byte to read
+	 * @return an object created from the specified {@code ByteBuffer}
 	 * @throws IOException
 	 *             if an I/O error occurs
 	 */
-	protected Object toObject(byte[] b, int offset) throws IOException {
-		try {
-			if (b == null)
-				return null;
-			return new ObjectInputStream(new ByteArrayInputStream(b, offset, b.length - offset)).readObject();
-		} catch (IOException e) {
-			throw e;
-		} catch (Exception e) {
-			throw new IOException(e);
-		}
+	protected Object toObject(ByteBuffer b, int offset) throws IOException {
+		if (b == null)
+			return null;
+		if (OverflowPointer.isStoredAt(b, offset))
+			return OverflowPointer.read(b, offset);
+		return codec.decode(b, offset, size - offset);
+	}
+
+	/**
+	 * Returns the number of bytes of the object at the specified location in this {@code SlottedPage}.
+	 * 
+	 * @param location
+	 *            the location of an object
+	 * @return the number of bytes of the object at the specified location
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	int length(int location) throws IOException {
+		if (OverflowPointer.isStoredAt(buffer, location))
+			return OverflowPointer.SIZE;
+		return codec.length(buffer, location, size - location);
+	}
+
+	/**
+	 * Determines whether or not this {@code SlottedPage} is an overflow page.
+	 * 
+	 * @return {@code true} if this {@code SlottedPage} is an overflow page; {@code false} otherwise
+	 */
+	boolean isOverflowPage() {
+		return entryCount() == OVERFLOW_PAGE;
+	}
+
+	/**
+	 * Turns this {@code SlottedPage} into an overflow page holding as many of the specified bytes as possible.
+	 * 
+	 * @param b
+	 *            a byte array
+	 * @param offset
+	 *            the offset in the byte array of the first byte to store
+	 * @param next
+	 *            the ID of the next overflow page ({@code -1} if none)
+	 * @return the number of bytes stored in this {@code SlottedPage}
+	 */
+	int fillOverflowPage(byte[] b, int offset, int next) {
+		int length = Math.min(b.length - offset, size - OVERFLOW_HEADER_SIZE);
+		setEntryCount(OVERFLOW_PAGE);
+		writeInt(Integer.BYTES, next);
+		writeInt(2 * Integer.BYTES, length);
+		write(OVERFLOW_HEADER_SIZE, Arrays.copyOfRange(b, offset, offset + length));
+		endOfFreeSpace = -1;
+		freeSlot = -1;
+		return length;
+	}
+
+	/**
+	 * Returns the ID of the overflow page following this overflow page ({@code -1} if none).
+	 * 
+	 * @return the ID of the overflow page following this overflow page; {@code -1} if none
+	 */
+	int nextOverflowPage() {
+		return readInt(Integer.BYTES);
+	}
+
+	/**
+	 * Copies the bytes stored in this overflow page into the specified byte array.
+	 * 
+	 * @param b
+	 *            a byte array that can hold the bytes stored in this overflow page
+	 * @return the number of bytes copied
+	 */
+	int readOverflowPage(byte[] b) {
+		int length = readInt(2 * Integer.BYTES);
+		ByteBuffer d = buffer.duplicate();
+		d.position(OVERFLOW_HEADER_SIZE);
+		d.get(b, 0, length);
+		return length;
 	}
 
 	/**
@@ -447,55 +1028,208 @@ public class SlottedPage implements Iterable<Object> {
 		private static final long serialVersionUID = 7167791498344223410L;
 
 	}
-	class SlottedPageIterator implements Iterator<Object>{
-		private SlottedPage pg;
-		private Queue <Object> queue;
-		SlottedPageIterator(SlottedPage sp)
-		{
-			pg =sp;
-			queue = new LinkedList<Object>();
-			fillQueue();
-			
-		}
+	/**
+	 * A {@code SlottedPageIterator} iterates over the objects in a {@code SlottedPage}, deserializing each of them only
+	 * when it is about to be returned. Removed objects and {@code null}s are skipped.
+	 */
+	class SlottedPageIterator implements Iterator<Object> {
+
+		/**
+		 * The index of the next slot to examine.
+		 */
+		int index = 0;
+
+		/**
+		 * The next object to return ({@code null} if not found yet).
+		 */
+		Object next = null;
+
 		@Override
 		public boolean hasNext() {
-			// TODO Auto-generated method stub
-			return !queue.isEmpty();
+			while (next == null && index < entryCount()) {
+				int location = getLocation(index++);
+				if (location > 0) {
+					try {
+						next = toObject(buffer, location);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}
+			return next != null;
 		}
 
 		@Override
-		public Object next() 
-		{
-			// TODO Auto-generated method stub
-			 if(!hasNext())
-			 {
-				 throw new NoSuchElementException();
-				 
-			 }
-			 return queue.remove();
+		public Object next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Object o = next;
+			next = null;
+			return o;
 		}
-		private void fillQueue( ) //throws IndexOutOfBoundsException, IOException
-		{
-			int count = pg.entryCount();
-			for (int i = 0; i < count; i++) {
-				int location = pg.getLocation(i);
-				if (location != -1) {
-					try 
-					{
-						Object itm =pg.get(i);
-						if(itm!=null)
-						{
-							queue.add(itm);
-						}
+
+	}
+
+	/**
+	 * A {@code SlottedPageSpliterator} traverses the objects in a range of slots of a {@code SlottedPage}, deserializing
+	 * each of them only when it is consumed. It splits by halving its range of slots. Removed objects and
+	 * {@code null}s are skipped.
+	 */
+	class SlottedPageSpliterator implements Spliterator<Object> {
+
+		/**
+		 * The index of the next slot to examine.
+		 */
+		int index;
+
+		/**
+		 * The index immediately after the last slot to examine.
+		 */
+		int end;
+
+		/**
+		 * Constructs a {@code SlottedPageSpliterator}.
+		 * 
+		 * @param index
+		 *            the index of the first slot to examine
+		 * @param end
+		 *            the index immediately after the last slot to examine
+		 */
+		SlottedPageSpliterator(int index, int end) {
+			this.index = index;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Object> action) {
+			while (index < end) {
+				int location = getLocation(index++);
+				if (location > 0) {
+					Object o;
+					try {
+						o = toObject(buffer, location);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
 					}
-					catch (Exception exp)
-					{
-						// iO exception 
-						System.out.print(exp.toString());
+					if (o != null) {
+						action.accept(o);
+						return true;
 					}
 				}
 			}
+			return false;
+		}
+
+		@Override
+		public Spliterator<Object> trySplit() {
+			int middle = (index + end) >>> 1;
+			if (middle <= index)
+				return null;
+			Spliterator<Object> prefix = new SlottedPageSpliterator(index, middle);
+			index = middle;
+			return prefix;
 		}
+
+		@Override
+		public long estimateSize() {
+			return end - index;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | NONNULL;
+		}
+
+	}
+
+	/**
+	 * A {@code Cursor} moves over the slots of a {@code SlottedPage} that hold objects, exposing the index and location
+	 * of each slot without deserializing the object unless requested.
+	 */
+	public class Cursor {
+
+		/**
+		 * The index of the current slot.
+		 */
+		int index = -1;
+
+		/**
+		 * The location of the object in the current slot ({@code -1} if the {@code Cursor} is not on a slot).
+		 */
+		int location = -1;
+
+		/**
+		 * Moves this {@code Cursor} to the next slot that holds an object.
+		 * 
+		 * @return {@code true} if this {@code Cursor} has moved to such a slot; {@code false} if no more slots hold
+		 *         objects
+		 */
+		public boolean next() {
+			int count = entryCount();
+			while (++index < count) {
+				location = getLocation(index);
+				if (location > 0)
+					return true;
+			}
+			index = count;
+			location = -1;
+			return false;
+		}
+
+		/**
+		 * Returns the index of the current slot.
+		 * 
+		 * @return the index of the current slot
+		 */
+		public int index() {
+			return index;
+		}
+
+		/**
+		 * Returns the location of the object in the current slot.
+		 * 
+		 * @return the location of the object in the current slot; {@code -1} if this {@code Cursor} is not on a slot
+		 */
+		public int location() {
+			return location;
+		}
+
+		/**
+		 * Returns the object in the current slot.
+		 * 
+		 * @return the object in the current slot
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		public Object get() throws IOException {
+			return toObject(buffer, current());
+		}
+
+		/**
+		 * Returns a read-only {@code ByteBuffer} over the bytes of the object in the current slot (see
+		 * {@link SlottedPage#getRaw(int)}).
+		 * 
+		 * @return a read-only {@code ByteBuffer} over the bytes of the object in the current slot
+		 * @throws IOException
+		 *             if an I/O error occurs
+		 */
+		public ByteBuffer getRaw() throws IOException {
+			return raw(current());
+		}
+
+		/**
+		 * Returns the location of the object in the current slot.
+		 * 
+		 * @return the location of the object in the current slot
+		 * @throws NoSuchElementException
+		 *             if this {@code Cursor} is not on a slot
+		 */
+		int current() {
+			if (location <= 0)
+				throw new NoSuchElementException();
+			return location;
+		}
+
 	}
 
 }
@@ -1,38 +1,211 @@
 package storage;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
- * A {@code SlottedPageFile} represents a file consisting of {@code SlottedPage}s.
+ * A {@code SlottedPageFile} represents a file consisting of {@code SlottedPage}s. The file is accessed through a
+ * {@code FileChannel} using positional reads and writes, which do not share a file pointer, so threads can read and
+ * save uncompressed {@code SlottedPage}s at once without synchronizing on the {@code SlottedPageFile}. Operations
+ * that change the format of the file (e.g., {@link #setPageSize(int)} and {@link #clear()}) and all accesses to a
+ * compressed file are still serialized by synchronizing on the {@code SlottedPageFile}.
+ * 
+ * A {@code SlottedPageFile} starts with a header of {@link #HEADER_SIZE} bytes that stores a magic number, the version
+ * of the file format, the size of the {@code SlottedPage}s in the file, and flags, followed by the
+ * {@code SlottedPage}s. A file without such a header (created before the page size was stored in each file) is read
+ * as a sequence of {@code SlottedPage}s of the default size ({@link SlottedPage#SIZE}).
+ * 
+ * In a compressed {@code SlottedPageFile} (see {@link #setCompression(boolean)}), each {@code SlottedPage} is
+ * compressed by a {@code Deflater} at its fastest level when it is saved and decompressed when it is read. A
+ * compressed {@code SlottedPage} is stored as its length followed by its bytes in a record whose capacity is a
+ * multiple of {@link #RECORD_ALIGNMENT} bytes, so that it can be saved again in place unless it grows beyond that
+ * capacity; otherwise it is moved to a new record at the end of the file and the space of its old record is not
+ * reused until the file is cleared. The location and capacity of the record of each {@code SlottedPage} are kept in
+ * memory and in a separate map file whose name is that of the data file followed by {@code .map}.
+ * 
+ * The {@code SlottedPage}s in a {@code SlottedPageFile} may have dense slots (see {@link #setDenseSlots(boolean)}),
+ * which is also recorded in the flags of the header. If the {@code SlottedPage}s store records using a
+ * {@code PaxLayout} (see {@link #setLayout(PaxLayout)}), the header also stores the number of fields and the type of
+ * each field, so the {@code PaxLayout} is restored when the file is opened again.
  * 
  * @author Jeong-Hyon Hwang (jhh@cs.albany.edu)
  */
 public class SlottedPageFile {
 
+	/**
+	 * The magic number with which the header of a {@code SlottedPageFile} starts.
+	 */
+	static final int MAGIC = 0x534C5046; // "SLPF"
+
+	/**
+	 * The version of the file format.
+	 */
+	static final int VERSION = 3;
+
+	/**
+	 * The flag indicating that the {@code SlottedPage}s in a {@code SlottedPageFile} are compressed.
+	 */
+	static final int COMPRESSED = 1;
+
+	/**
+	 * The flag indicating that the {@code SlottedPage}s in a {@code SlottedPageFile} have dense slots.
+	 */
+	static final int DENSE = 2;
+
+	/**
+	 * The flag indicating that the {@code SlottedPage}s in a {@code SlottedPageFile} store records using a
+	 * {@code PaxLayout}.
+	 */
+	static final int PAX = 4;
+
+	/**
+	 * The granularity of the capacities of the records holding compressed {@code SlottedPage}s.
+	 */
+	static final int RECORD_ALIGNMENT = 256;
+
+	/**
+	 * The number of bytes of each entry in the map file of a compressed {@code SlottedPageFile} (the location and the
+	 * capacity of a record).
+	 */
+	static final int MAP_ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+
+	/**
+	 * The number of bytes reserved for the header of a {@code SlottedPageFile} (a multiple of the block size of most
+	 * file systems).
+	 */
+	static final int HEADER_SIZE = 4096;
+
 	String name;
 
 	/**
-	 * A {@code RandomAccessFile}
+	 * The {@code FileChannel} for accessing the file.
+	 */
+	FileChannel channel;
+
+	/**
+	 * The number of reads and writes that did not start where the previous read or write ended (i.e., the number of
+	 * seeks that a single file pointer would need).
 	 */
-	RandomAccessFile file;
+	final LongAdder seeks = new LongAdder();
 
 	/**
-	 * The number of seeks performed so far.
+	 * The position at which the last read or write ended.
 	 */
-	int seeks = 0;
+	final AtomicLong position = new AtomicLong();
 
 	/**
 	 * The number of {@code SlottedPage}s read.
 	 */
-	int reads = 0;
+	final LongAdder reads = new LongAdder();
 
 	/**
 	 * The number of {@code SlottedPage}s written.
 	 */
-	int writes = 0;
+	final LongAdder writes = new LongAdder();
+
+	/**
+	 * The {@code Codec} of the {@code SlottedPage}s in this {@code SlottedPageFile}.
+	 */
+	volatile Codec codec = new BinaryCodec();
+
+	/**
+	 * The {@code PaxLayout} of the {@code SlottedPage}s in this {@code SlottedPageFile} ({@code null} if objects are
+	 * stored in slots).
+	 */
+	volatile PaxLayout layout;
+
+	/**
+	 * The size of the {@code SlottedPage}s in this {@code SlottedPageFile}.
+	 */
+	volatile int pageSize;
+
+	/**
+	 * The size of the header of this {@code SlottedPageFile} ({@code 0} if this {@code SlottedPageFile} has no header).
+	 */
+	volatile int headerSize;
+
+	/**
+	 * A flag indicating whether or not the {@code SlottedPage}s in this {@code SlottedPageFile} are compressed.
+	 */
+	volatile boolean compressed;
+
+	/**
+	 * A flag indicating whether or not the {@code SlottedPage}s in this {@code SlottedPageFile} have dense slots.
+	 */
+	volatile boolean dense;
+
+	/**
+	 * The map file of this {@code SlottedPageFile} ({@code null} if this {@code SlottedPageFile} is not compressed).
+	 */
+	RandomAccessFile map;
+
+	/**
+	 * The number of {@code SlottedPage}s in this {@code SlottedPageFile} if it is compressed.
+	 */
+	int pages;
+
+	/**
+	 * The location of the record of each compressed {@code SlottedPage}.
+	 */
+	long[] locations;
+
+	/**
+	 * The capacity of the record of each compressed {@code SlottedPage} ({@code 0} if the {@code SlottedPage} has never
+	 * been saved).
+	 */
+	int[] capacities;
+
+	/**
+	 * The end location of the last record of compressed {@code SlottedPage}s.
+	 */
+	long end;
+
+	/**
+	 * The {@code Deflater} for compressing {@code SlottedPage}s.
+	 */
+	Deflater deflater;
+
+	/**
+	 * The {@code Inflater} for decompressing {@code SlottedPage}s.
+	 */
+	Inflater inflater;
+
+	/**
+	 * A byte array for holding a record of a compressed {@code SlottedPage}.
+	 */
+	byte[] record;
+
+	/**
+	 * A byte array for holding an uncompressed {@code SlottedPage} whose {@code ByteBuffer} has no accessible array.
+	 */
+	byte[] page;
+
+	/**
+	 * The lock that threads hold while appending objects (and thus possibly {@code SlottedPage}s) to this
+	 * {@code SlottedPageFile}.
+	 */
+	final ReentrantLock appendLock = new ReentrantLock();
+
+	/**
+	 * The IDs of the {@code SlottedPage}s in this {@code SlottedPageFile} that may have free slots since objects were
+	 * removed from them after this {@code SlottedPageFile} was opened.
+	 */
+	final ConcurrentSkipListSet<Integer> pagesWithFreeSlots = new ConcurrentSkipListSet<Integer>();
 
 	/**
 	 * Constructs a {@code SlottedPageFile}.
@@ -41,15 +214,301 @@ public class SlottedPageFile {
 	 *            the system-dependent filename
 	 * @throws FileNotFoundException
 	 *             if the specified file cannot be found/created
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public SlottedPageFile(String name) throws FileNotFoundException, IOException {
+		this(name, SlottedPage.SIZE);
+	}
+
+	/**
+	 * Constructs a {@code SlottedPageFile}. If the specified file is empty, it is given the specified page size;
+	 * otherwise, the page size stored in the file is used.
+	 * 
+	 * @param name
+	 *            the system-dependent filename
+	 * @param pageSize
+	 *            the size of the {@code SlottedPage}s in a new file
+	 * @throws FileNotFoundException
+	 *             if the specified file cannot be found/created
+	 * @throws IOException
+	 *             if an I/O error occurs or the file has an unsupported format
+	 * @throws IllegalArgumentException
+	 *             if the page size is invalid (see {@link SlottedPage#checkSize(int)})
 	 */
-	public SlottedPageFile(String name) throws FileNotFoundException {
+	public SlottedPageFile(String name, int pageSize) throws FileNotFoundException, IOException {
+		this(name, pageSize, false);
+	}
+
+	/**
+	 * Constructs a {@code SlottedPageFile}. If the specified file is empty, it is given the specified page size and is
+	 * compressed as specified; otherwise, the page size and the flags stored in the file are used.
+	 * 
+	 * @param name
+	 *            the system-dependent filename
+	 * @param pageSize
+	 *            the size of the {@code SlottedPage}s in a new file
+	 * @param compressed
+	 *            {@code true} if the {@code SlottedPage}s in a new file are compressed; {@code false} otherwise
+	 * @throws FileNotFoundException
+	 *             if the specified file cannot be found/created
+	 * @throws IOException
+	 *             if an I/O error occurs or the file has an unsupported format
+	 * @throws IllegalArgumentException
+	 *             if the page size is invalid (see {@link SlottedPage#checkSize(int)})
+	 */
+	public SlottedPageFile(String name, int pageSize, boolean compressed) throws FileNotFoundException, IOException {
 		this.name = name;
-		file = new java.io.RandomAccessFile(name, "rw");
+		this.pageSize = SlottedPage.checkSize(pageSize);
+		this.compressed = compressed;
+		channel = FileChannel.open(Paths.get(name), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			if (channel.size() == 0)
+				writeHeader();
+			else
+				readHeader();
+			if (this.compressed)
+				openMap();
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes the header of this {@code SlottedPageFile}.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void writeHeader() throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(HEADER_SIZE);
+		PaxLayout layout = this.layout;
+		b.putInt(MAGIC).putInt(VERSION).putInt(pageSize)
+				.putInt((compressed ? COMPRESSED : 0) | (dense ? DENSE : 0) | (layout != null ? PAX : 0));
+		if (layout != null) {
+			b.putInt(layout.types.length);
+			for (PaxLayout.Type type : layout.types)
+				b.put((byte) type.ordinal());
+		}
+		b.clear();
+		write(b, 0);
+		headerSize = HEADER_SIZE;
+	}
+
+	/**
+	 * Reads the header of this {@code SlottedPageFile}, or determines that this {@code SlottedPageFile} has no header.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs or the file has an unsupported format
+	 */
+	void readHeader() throws IOException {
+		ByteBuffer b = ByteBuffer.allocate(HEADER_SIZE);
+		if (channel.size() < HEADER_SIZE || read(b, 0) < b.capacity() || b.getInt(0) != MAGIC) { // no header
+			pageSize = SlottedPage.SIZE;
+			headerSize = 0;
+			compressed = false;
+			dense = false;
+			layout = null;
+			return;
+		}
+		int version = b.getInt(4);
+		if (version > VERSION)
+			throw new IOException(name + ": unsupported format version " + version);
+		pageSize = SlottedPage.checkSize(b.getInt(8));
+		int flags = version > 1 ? b.getInt(12) : 0;
+		compressed = (flags & COMPRESSED) != 0;
+		dense = (flags & DENSE) != 0;
+		layout = (flags & PAX) != 0 ? readLayout(b) : null;
+		headerSize = HEADER_SIZE;
+	}
+
+	/**
+	 * Reads the {@code PaxLayout} stored in the specified header.
+	 * 
+	 * @param b
+	 *            a {@code ByteBuffer} holding the header
+	 * @return the {@code PaxLayout} stored in the header
+	 * @throws IOException
+	 *             if the header does not contain a valid {@code PaxLayout}
+	 */
+	PaxLayout readLayout(ByteBuffer b) throws IOException {
+		int fields = b.getInt(16);
+		PaxLayout.Type[] values = PaxLayout.Type.values();
+		if (fields < 1 || fields > HEADER_SIZE - 20)
+			throw new IOException(name + ": corrupted header");
+		PaxLayout.Type[] types = new PaxLayout.Type[fields];
+		for (int i = 0; i < fields; i++) {
+			int type = b.get(20 + i);
+			if (type < 0 || type >= values.length)
+				throw new IOException(name + ": corrupted header");
+			types[i] = values[type];
+		}
+		return new PaxLayout(types);
+	}
+
+	/**
+	 * Opens the map file of this {@code SlottedPageFile} and reads the location and the capacity of the record of each
+	 * compressed {@code SlottedPage}.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void openMap() throws IOException {
+		map = new RandomAccessFile(name + ".map", "rw");
+		pages = (int) (map.length() / MAP_ENTRY_SIZE);
+		locations = new long[Math.max(16, pages)];
+		capacities = new int[locations.length];
+		end = headerSize;
+		byte[] b = new byte[pages * MAP_ENTRY_SIZE];
+		map.readFully(b);
+		ByteBuffer entries = ByteBuffer.wrap(b);
+		for (int i = 0; i < pages; i++) {
+			locations[i] = entries.getLong();
+			capacities[i] = entries.getInt();
+			end = Math.max(end, locations[i] + capacities[i]);
+		}
+		if (deflater == null) {
+			deflater = new Deflater(Deflater.BEST_SPEED);
+			inflater = new Inflater();
+		}
+	}
+
+	/**
+	 * Closes the map file of this {@code SlottedPageFile} if it is open.
+	 * 
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void closeMap() throws IOException {
+		if (map != null) {
+			map.close();
+			map = null;
+		}
+	}
+
+	/**
+	 * Returns the size of the {@code SlottedPage}s in this {@code SlottedPageFile}.
+	 * 
+	 * @return the size of the {@code SlottedPage}s in this {@code SlottedPageFile}
+	 */
+	public int pageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Sets the size of the {@code SlottedPage}s in this {@code SlottedPageFile}, which must contain no
+	 * {@code SlottedPage}.
+	 * 
+	 * @param pageSize
+	 *            the size of the {@code SlottedPage}s
+	 * @throws IllegalStateException
+	 *             if this {@code SlottedPageFile} contains {@code SlottedPage}s
+	 * @throws IllegalArgumentException
+	 *             if the page size is invalid (see {@link SlottedPage#checkSize(int)}) or too large for the dense
+	 *             slots of this {@code SlottedPageFile}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void setPageSize(int pageSize) throws IOException {
+		SlottedPage.checkSize(pageSize);
+		if (size() > 0)
+			throw new IllegalStateException(name + " is not empty");
+		if (dense && pageSize > SlottedPage.MAX_DENSE_SIZE)
+			throw new IllegalArgumentException("no dense slots in pages of " + pageSize + " bytes");
+		this.pageSize = pageSize;
+		writeHeader();
+	}
+
+	/**
+	 * Determines whether or not the {@code SlottedPage}s in this {@code SlottedPageFile} are compressed.
+	 * 
+	 * @return {@code true} if the {@code SlottedPage}s in this {@code SlottedPageFile} are compressed; {@code false}
+	 *         otherwise
+	 */
+	public synchronized boolean compressed() {
+		return compressed;
+	}
+
+	/**
+	 * Determines whether or not the {@code SlottedPage}s in this {@code SlottedPageFile} have dense slots.
+	 * 
+	 * @return {@code true} if the {@code SlottedPage}s in this {@code SlottedPageFile} have dense slots; {@code false}
+	 *         otherwise
+	 */
+	public synchronized boolean denseSlots() {
+		return dense;
+	}
+
+	/**
+	 * Sets whether or not the {@code SlottedPage}s in this {@code SlottedPageFile}, which must contain no
+	 * {@code SlottedPage}, have dense slots, whose entry count and locations take 2 bytes each instead of 4.
+	 * 
+	 * @param dense
+	 *            {@code true} if the {@code SlottedPage}s have dense slots; {@code false} otherwise
+	 * @throws IllegalStateException
+	 *             if this {@code SlottedPageFile} contains {@code SlottedPage}s
+	 * @throws IllegalArgumentException
+	 *             if the {@code SlottedPage}s are larger than {@link SlottedPage#MAX_DENSE_SIZE} bytes
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void setDenseSlots(boolean dense) throws IOException {
+		if (size() > 0)
+			throw new IllegalStateException(name + " is not empty");
+		if (dense && pageSize > SlottedPage.MAX_DENSE_SIZE)
+			throw new IllegalArgumentException("no dense slots in pages of " + pageSize + " bytes");
+		this.dense = dense;
+		writeHeader();
+	}
+
+	/**
+	 * Sets whether or not the {@code SlottedPage}s in this {@code SlottedPageFile}, which must contain no
+	 * {@code SlottedPage}, are compressed.
+	 * 
+	 * @param compressed
+	 *            {@code true} if the {@code SlottedPage}s are compressed; {@code false} otherwise
+	 * @throws IllegalStateException
+	 *             if this {@code SlottedPageFile} contains {@code SlottedPage}s
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void setCompression(boolean compressed) throws IOException {
+		if (size() > 0)
+			throw new IllegalStateException(name + " is not empty");
+		this.compressed = compressed;
+		writeHeader();
+		closeMap();
+		new File(name + ".map").delete();
+		if (compressed)
+			openMap();
+	}
+
+	/**
+	 * Returns the location of the specified {@code SlottedPage} in this {@code SlottedPageFile}.
+	 * 
+	 * @param pageID
+	 *            the ID of a {@code SlottedPage}
+	 * @return the location of the specified {@code SlottedPage} in this {@code SlottedPageFile}
+	 */
+	long offset(int pageID) {
+		return headerSize + ((long) pageID) * pageSize;
 	}
 
 	@Override
-	public String toString() {
-		return "{name:" + name + ", reads:" + reads + ", writes:" + writes + "}";
+	public synchronized String toString() {
+		return "{name:" + name + (compressed ? ", compressed" : "") + ", reads:" + reads.sum() + ", writes:"
+				+ writes.sum() + "}";
+	}
+
+	/**
+	 * Resets the numbers of seeks, reads, and writes performed on this {@code SlottedPageFile}.
+	 */
+	void resetStatistics() {
+		seeks.reset();
+		reads.reset();
+		writes.reset();
 	}
 
 	/**
@@ -60,7 +519,11 @@ public class SlottedPageFile {
 	 *             if an I/O error occurs
 	 */
 	public int size() throws IOException {
-		return (int) (file.length() / SlottedPage.SIZE);
+		if (compressed)
+			synchronized (this) {
+				return pages;
+			}
+		return (int) (Math.max(0, channel.size() - headerSize) / pageSize);
 	}
 
 	/**
@@ -70,20 +533,25 @@ public class SlottedPageFile {
 	 * @throws IOException
 	 *             if an I/O error occurs
 	 */
-	public void close() throws IOException {
-		file.close();
+	public synchronized void close() throws IOException {
+		channel.close();
+		closeMap();
 	}
 
 	/**
-	 * Removes all data from this {@code SlottedPageFile}.
+	 * Removes all data from this {@code SlottedPageFile}. The page size of this {@code SlottedPageFile} is kept.
 	 * 
 	 * @throws IOException
 	 *             if an I/O error occurs
 	 */
-	public void clear() throws IOException {
-		file.close();
-		new File(name).delete();
-		file = new java.io.RandomAccessFile(name, "rw");
+	public synchronized void clear() throws IOException {
+		channel.truncate(0); // the FileChannel stays open for the threads that use it without synchronization
+		closeMap();
+		new File(name + ".map").delete();
+		writeHeader();
+		if (compressed)
+			openMap();
+		pagesWithFreeSlots.clear();
 	}
 
 	/**
@@ -98,18 +566,132 @@ public class SlottedPageFile {
 	 *             if an I/O error occurs
 	 */
 	public SlottedPage get(int pageID) throws IOException {
-		if (pageID < 0)
+		if (!contains(pageID))
 			return null;
-		long pos = ((long) pageID) * SlottedPage.SIZE;
-		if (pos + SlottedPage.SIZE > file.length())
-			return null;
-		seek(pos);
-		SlottedPage p = new SlottedPage(pageID);
-		file.read(p.data());
-		reads++;
+		SlottedPage p = newPage(pageID);
+		read(p);
 		return p;
 	}
 
+	/**
+	 * Reads the data of the {@code SlottedPage} whose ID is the ID of the specified {@code SlottedPage} into that
+	 * {@code SlottedPage}.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @return {@code true} if the data has been read; {@code false} if no corresponding data is stored in this
+	 *         {@code SlottedPageFile}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public boolean load(SlottedPage p) throws IOException {
+		if (!contains(p.pageID()))
+			return false;
+		read(p);
+		return true;
+	}
+
+	/**
+	 * Reads the data of consecutive {@code SlottedPage}s into the specified byte array using a single read. As many
+	 * {@code SlottedPage}s as the byte array can hold are read unless this {@code SlottedPageFile} ends earlier.
+	 * 
+	 * @param pageID
+	 *            the ID of the first {@code SlottedPage} to read
+	 * @param b
+	 *            a byte array
+	 * @return the number of {@code SlottedPage}s read
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public int read(int pageID, byte[] b) throws IOException {
+		if (pageID < 0)
+			return 0;
+		if (compressed)
+			synchronized (this) {
+				int pages = Math.max(0, Math.min(b.length / pageSize, this.pages - pageID));
+				for (int i = 0; i < pages; i++)
+					decompress(pageID + i, b, i * pageSize);
+				reads.add(pages);
+				return pages;
+			}
+		int pageSize = this.pageSize;
+		long pos = offset(pageID);
+		int pages = (int) Math.min(b.length / pageSize, Math.max(0, (channel.size() - pos) / pageSize));
+		if (pages == 0)
+			return 0;
+		readFully(ByteBuffer.wrap(b, 0, pages * pageSize), pos);
+		reads.add(pages);
+		return pages;
+	}
+
+	/**
+	 * Returns a new empty {@code SlottedPage} that uses the {@code Codec} of this {@code SlottedPageFile}.
+	 * 
+	 * @param pageID
+	 *            the ID of the {@code SlottedPage}
+	 * @return a new empty {@code SlottedPage}
+	 */
+	public SlottedPage newPage(int pageID) {
+		SlottedPage p = new SlottedPage(pageID, pageSize, codec, layout);
+		p.dense = dense;
+		return p;
+	}
+
+	/**
+	 * Returns the {@code Codec} of the {@code SlottedPage}s in this {@code SlottedPageFile}.
+	 * 
+	 * @return the {@code Codec} of the {@code SlottedPage}s in this {@code SlottedPageFile}
+	 */
+	public Codec codec() {
+		return codec;
+	}
+
+	/**
+	 * Sets the {@code Codec} of the {@code SlottedPage}s in this {@code SlottedPageFile}. The {@code Codec} must be able
+	 * to read the objects already stored in this {@code SlottedPageFile}.
+	 * 
+	 * @param codec
+	 *            a {@code Codec}
+	 */
+	public void setCodec(Codec codec) {
+		this.codec = codec;
+	}
+
+	/**
+	 * Returns the {@code PaxLayout} of the {@code SlottedPage}s in this {@code SlottedPageFile}.
+	 * 
+	 * @return the {@code PaxLayout} of the {@code SlottedPage}s in this {@code SlottedPageFile}; {@code null} if objects
+	 *         are stored in slots
+	 */
+	public PaxLayout layout() {
+		return layout;
+	}
+
+	/**
+	 * Sets the {@code PaxLayout} of the {@code SlottedPage}s in this {@code SlottedPageFile}, which is stored in the
+	 * header. The {@code PaxLayout} of a {@code SlottedPageFile} that contains {@code SlottedPage}s cannot be changed.
+	 * 
+	 * @param layout
+	 *            a {@code PaxLayout} ({@code null} to store objects in slots)
+	 * @throws IllegalStateException
+	 *             if this {@code SlottedPageFile} contains {@code SlottedPage}s and the {@code PaxLayout} differs from
+	 *             the current one
+	 * @throws IllegalArgumentException
+	 *             if the {@code PaxLayout} has too many fields to be stored in the header
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public synchronized void setLayout(PaxLayout layout) throws IOException {
+		if (layout == null ? this.layout == null : layout.equals(this.layout))
+			return;
+		if (size() > 0)
+			throw new IllegalStateException(name + " is not empty");
+		if (layout != null && layout.types.length > HEADER_SIZE - 20)
+			throw new IllegalArgumentException("too many fields: " + layout.types.length);
+		this.layout = layout;
+		writeHeader();
+	}
+
 	/**
 	 * Saves the specified {@code SlottedPage} to this {@code SlottedPageFile}.
 	 * 
@@ -119,25 +701,261 @@ public class SlottedPageFile {
 	 *             if an I/O error occurs
 	 */
 	public void save(SlottedPage p) throws IOException {
-		seek(p.pageID() * SlottedPage.SIZE);
-		file.write(p.data());
-		writes++;
+		int pageSize = this.pageSize;
+		if (p.size != pageSize)
+			throw new IOException(name + ": cannot save a page of " + p.size + " bytes in a file of " + pageSize
+					+ "-byte pages");
+		if (compressed)
+			synchronized (this) {
+				compress(p);
+				writes.increment();
+				return;
+			}
+		ByteBuffer d = p.buffer().duplicate();
+		d.clear().limit(pageSize);
+		write(d, offset(p.pageID()));
+		writes.increment();
+	}
+
+	/**
+	 * Determines whether or not this {@code SlottedPageFile} stores the data of the specified {@code SlottedPage}.
+	 * 
+	 * @param pageID
+	 *            the ID of a {@code SlottedPage}
+	 * @return {@code true} if this {@code SlottedPageFile} stores the data of the specified {@code SlottedPage};
+	 *         {@code false} otherwise
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	boolean contains(int pageID) throws IOException {
+		if (compressed)
+			synchronized (this) {
+				return pageID >= 0 && pageID < pages;
+			}
+		return pageID >= 0 && offset(pageID) + pageSize <= channel.size();
 	}
 
 	/**
-	 * Sets the file-pointer offset, measured from the beginning of this file, at which the next read or write occurs.
+	 * Reads the data of the specified {@code SlottedPage} from this {@code SlottedPageFile}. The {@code SlottedPage}
+	 * takes the page size of this {@code SlottedPageFile}.
 	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs or the {@code ByteBuffer} of the {@code SlottedPage} is too small
+	 */
+	void read(SlottedPage p) throws IOException {
+		ByteBuffer b = p.buffer();
+		if (b.capacity() < pageSize)
+			throw new IOException(name + ": cannot read a page of " + pageSize + " bytes into a buffer of "
+					+ b.capacity() + " bytes");
+		p.size = pageSize;
+		if (compressed)
+			synchronized (this) {
+				if (b.hasArray())
+					decompress(p.pageID(), b.array(), b.arrayOffset());
+				else {
+					decompress(p.pageID(), page(), 0);
+					ByteBuffer d = b.duplicate();
+					d.clear();
+					d.put(page, 0, pageSize);
+				}
+			}
+		else {
+			ByteBuffer d = b.duplicate();
+			d.clear().limit(pageSize);
+			readFully(d, offset(p.pageID()));
+		}
+		p.invalidate();
+		p.codec = codec;
+		p.layout = layout;
+		p.dense = dense;
+		reads.increment();
+	}
+
+	/**
+	 * Compresses the specified {@code SlottedPage} and saves it in its record, which is moved to the end of this
+	 * {@code SlottedPageFile} if it cannot hold the compressed {@code SlottedPage}.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void compress(SlottedPage p) throws IOException {
+		ByteBuffer b = p.buffer();
+		if (b.hasArray())
+			deflater.setInput(b.array(), b.arrayOffset(), pageSize);
+		else {
+			ByteBuffer d = b.duplicate();
+			d.clear();
+			d.get(page(), 0, pageSize);
+			deflater.setInput(page, 0, pageSize);
+		}
+		deflater.finish();
+		byte[] record = record();
+		int length = deflater.deflate(record, Integer.BYTES, record.length - Integer.BYTES);
+		boolean finished = deflater.finished();
+		deflater.reset();
+		if (!finished)
+			throw new IOException(name + ": cannot compress page " + p.pageID());
+		ByteBuffer.wrap(record).putInt(0, length);
+		int pageID = p.pageID();
+		if (pageID >= pages || capacities[pageID] < Integer.BYTES + length) { // a new record at the end of the file
+			if (pageID >= locations.length) {
+				locations = Arrays.copyOf(locations, Math.max(pageID + 1, locations.length * 2));
+				capacities = Arrays.copyOf(capacities, locations.length);
+			}
+			int first = Math.min(pages, pageID); // the pages skipped so far have no records
+			locations[pageID] = end;
+			capacities[pageID] = (Integer.BYTES + length + RECORD_ALIGNMENT - 1) / RECORD_ALIGNMENT * RECORD_ALIGNMENT;
+			end += capacities[pageID];
+			pages = Math.max(pages, pageID + 1);
+			ByteBuffer entries = ByteBuffer.allocate((pageID + 1 - first) * MAP_ENTRY_SIZE);
+			for (int i = first; i <= pageID; i++)
+				entries.putLong(locations[i]).putInt(capacities[i]);
+			map.seek((long) first * MAP_ENTRY_SIZE);
+			map.write(entries.array());
+		}
+		write(ByteBuffer.wrap(record, 0, Integer.BYTES + length), locations[pageID]);
+	}
+
+	/**
+	 * Reads and decompresses the specified {@code SlottedPage} into the specified byte array. A {@code SlottedPage}
+	 * that has never been saved is read as zeros.
+	 * 
+	 * @param pageID
+	 *            the ID of a {@code SlottedPage}
+	 * @param b
+	 *            a byte array
+	 * @param offset
+	 *            the offset in the byte array at which the {@code SlottedPage} is stored
+	 * @throws IOException
+	 *             if an I/O error occurs or the record of the {@code SlottedPage} is corrupted
+	 */
+	void decompress(int pageID, byte[] b, int offset) throws IOException {
+		if (capacities[pageID] == 0) {
+			Arrays.fill(b, offset, offset + pageSize, (byte) 0);
+			return;
+		}
+		byte[] record = record();
+		ByteBuffer r = ByteBuffer.wrap(record, 0, Math.min(record.length, capacities[pageID]));
+		if (read(r, locations[pageID]) < Integer.BYTES)
+			throw new EOFException();
+		int length = r.getInt(0);
+		if (length < 0 || length > record.length - Integer.BYTES)
+			throw new IOException(name + ": corrupted page " + pageID);
+		if (r.position() < Integer.BYTES + length) { // a record beyond its capacity (corrupted)
+			r.limit(Integer.BYTES + length);
+			readFully(r, locations[pageID] + r.position());
+		}
+		inflater.setInput(record, Integer.BYTES, length);
+		try {
+			if (inflater.inflate(b, offset, pageSize) != pageSize || !inflater.finished())
+				throw new IOException(name + ": corrupted page " + pageID);
+		} catch (DataFormatException e) {
+			throw new IOException(name + ": corrupted page " + pageID, e);
+		} finally {
+			inflater.reset();
+		}
+	}
+
+	/**
+	 * Returns a byte array that can hold the record of any compressed {@code SlottedPage} in this
+	 * {@code SlottedPageFile}.
+	 * 
+	 * @return a byte array that can hold the record of any compressed {@code SlottedPage}
+	 */
+	byte[] record() {
+		int length = Integer.BYTES + pageSize + pageSize / 8 + 64; // more than the compressed size of any page
+		if (record == null || record.length < length)
+			record = new byte[length];
+		return record;
+	}
+
+	/**
+	 * Returns a byte array that can hold an uncompressed {@code SlottedPage} in this {@code SlottedPageFile}.
+	 * 
+	 * @return a byte array that can hold an uncompressed {@code SlottedPage}
+	 */
+	byte[] page() {
+		if (page == null || page.length < pageSize)
+			page = new byte[pageSize];
+		return page;
+	}
+
+	/**
+	 * Reads a sequence of bytes from this {@code SlottedPageFile} into the specified {@code ByteBuffer}, starting at
+	 * the specified position, until the {@code ByteBuffer} is full or the end of the file is reached. The file
+	 * pointer is not used, so threads can read at once.
+	 * 
+	 * @param b
+	 *            a {@code ByteBuffer}
 	 * @param pos
-	 *            the offset position, measured in bytes from the beginning of the file, at which to set the file
-	 *            pointer.
+	 *            the position in the file at which to start reading
+	 * @return the number of bytes read
 	 * @throws IOException
-	 *             if an I/O error occurs.
+	 *             if an I/O error occurs
 	 */
-	void seek(long pos) throws IOException {
-		if (pos != file.getFilePointer()) {
-			file.seek(pos);
-			seeks++;
+	int read(ByteBuffer b, long pos) throws IOException {
+		access(pos, b.remaining());
+		int start = b.position();
+		while (b.hasRemaining()) {
+			int n = channel.read(b, pos + b.position() - start);
+			if (n < 0)
+				break;
 		}
+		return b.position() - start;
+	}
+
+	/**
+	 * Reads bytes from this {@code SlottedPageFile} into the specified {@code ByteBuffer}, starting at the specified
+	 * position, until the {@code ByteBuffer} is full.
+	 * 
+	 * @param b
+	 *            a {@code ByteBuffer}
+	 * @param pos
+	 *            the position in the file at which to start reading
+	 * @throws EOFException
+	 *             if the end of the file is reached before the {@code ByteBuffer} is full
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void readFully(ByteBuffer b, long pos) throws IOException {
+		if (b.remaining() > read(b, pos))
+			throw new EOFException();
+	}
+
+	/**
+	 * Writes the remaining bytes of the specified {@code ByteBuffer} to this {@code SlottedPageFile}, starting at the
+	 * specified position. The file pointer is not used, so threads can write at once.
+	 * 
+	 * @param b
+	 *            a {@code ByteBuffer}
+	 * @param pos
+	 *            the position in the file at which to start writing
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	void write(ByteBuffer b, long pos) throws IOException {
+		access(pos, b.remaining());
+		int start = b.position();
+		while (b.hasRemaining())
+			channel.write(b, pos + b.position() - start);
+	}
+
+	/**
+	 * Records an access to the specified number of bytes starting at the specified position, which counts as a seek
+	 * unless it starts where the previous access ended.
+	 * 
+	 * @param pos
+	 *            the position in the file
+	 * @param length
+	 *            the number of bytes accessed
+	 */
+	void access(long pos, int length) {
+		if (position.getAndSet(pos + length) != pos)
+			seeks.increment();
 	}
 
 }
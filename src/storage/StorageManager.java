@@ -1,7 +1,9 @@
 package storage;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * A {@code StorageManager} manages a storage space.
@@ -35,6 +37,24 @@ public interface StorageManager<L, O> {
 	 */
 	L add(int fileID, O o) throws IOException;
 
+	/**
+	 * Adds the specified objects in the specified file. By default, the objects are added one at a time.
+	 * 
+	 * @param fileID
+	 *            the ID of the file
+	 * @param objects
+	 *            the objects to add
+	 * @return the locations of the objects in the specified file, in the order of the objects
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	default List<L> addAll(int fileID, Iterable<? extends O> objects) throws IOException {
+		List<L> locations = new ArrayList<L>();
+		for (O o : objects)
+			locations.add(add(fileID, o));
+		return locations;
+	}
+
 	/**
 	 * Puts the specified object at the specified location in the specified file.
 	 * 
@@ -0,0 +1,206 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import storage.BufferedFileManager;
+import storage.ClockPolicy;
+import storage.FileManager;
+
+/**
+ * This program tests the {@code BufferedFileManager} class using multiple threads at once.
+ */
+public class BufferedFileManagerStressTest {
+
+	static int threads = 8;
+
+	static int additions = 500;
+
+	/**
+	 * The main program.
+	 * 
+	 * @param args
+	 *            the String arguments
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public static void main(String[] args) throws Exception {
+		for (int t = 1; t <= Runtime.getRuntime().availableProcessors(); t *= 2)
+			throughput(t, 64, 100000, System.out);
+	}
+
+	/**
+	 * Tests concurrent additions and lookups on the same file.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void addAndGet() throws Exception {
+		BufferedFileManager m = (BufferedFileManager) FileManagerTest.initialize(BufferedFileManager.class, 16);
+		long[][] locations = run(threads, t -> {
+			long[] l = new long[additions];
+			for (int i = 0; i < additions; i++)
+				l[i] = m.add(0, t * additions + i);
+			return l;
+		});
+		HashSet<Long> distinct = new HashSet<Long>();
+		for (long[] l : locations)
+			for (long location : l)
+				assertTrue(distinct.add(location));
+		run(threads, t -> {
+			for (int i = 0; i < additions; i++)
+				assertEquals(t * additions + i, m.get(0, locations[t][i]));
+			return null;
+		});
+		assertEquals(threads * additions, SlottedPageTest.list(m.iterator(0)).size());
+		m.shutdown();
+		FileManager f = new FileManager();
+		assertEquals(threads * additions, SlottedPageTest.list(f.iterator(0)).size());
+		f.shutdown();
+	}
+
+	/**
+	 * Tests concurrent updates, removals, and lookups on several files with a buffer much smaller than the files.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void updates() throws Exception {
+		updates((BufferedFileManager) FileManagerTest.initialize(BufferedFileManager.class, 8));
+	}
+
+	/**
+	 * Tests concurrent updates, removals, and lookups on several files with a small buffer kept outside the Java heap.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void offHeapUpdates() throws Exception {
+		updates((BufferedFileManager) FileManagerTest.initialize(BufferedFileManager.class, 8, new ClockPolicy(),
+				true));
+	}
+
+	/**
+	 * Performs concurrent updates, removals, and lookups on several files and verifies the results.
+	 * 
+	 * @param m
+	 *            a {@code BufferedFileManager}
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void updates(BufferedFileManager m) throws Exception {
+		for (int t = 0; t < threads; t++)
+			m.clear(FileManagerTest.STRESS_FILES + t);
+		run(threads, t -> {
+			int fileID = FileManagerTest.STRESS_FILES + t;
+			long[] l = new long[additions];
+			for (int i = 0; i < additions; i++)
+				l[i] = m.add(fileID, i);
+			for (int i = 0; i < additions; i += 2)
+				m.put(fileID, l[i], -i);
+			for (int i = 0; i < additions; i += 5)
+				m.remove(fileID, l[i]);
+			for (int i = 0; i < additions; i++) {
+				Object expected = i % 5 == 0 ? null : i % 2 == 0 ? -i : i;
+				assertEquals(expected, m.get(fileID, l[i]));
+			}
+			return null;
+		});
+		m.shutdown();
+		FileManager f = new FileManager();
+		for (int t = 0; t < threads; t++)
+			assertEquals(additions - additions / 5,
+					SlottedPageTest.list(f.iterator(FileManagerTest.STRESS_FILES + t)).size());
+		f.shutdown();
+	}
+
+	/**
+	 * Measures the throughput of lookups performed by the specified number of threads.
+	 * 
+	 * @param threads
+	 *            the number of threads
+	 * @param bufferSize
+	 *            the buffer size
+	 * @param lookups
+	 *            the number of lookups that each thread performs
+	 * @param out
+	 *            a {@code PrintStream}
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void throughput(int threads, int bufferSize, int lookups, PrintStream out) throws Exception {
+		BufferedFileManager m = (BufferedFileManager) FileManagerTest.initialize(BufferedFileManager.class, bufferSize);
+		long[] locations = FileManagerTest.add(m, FileManagerTest.additions);
+		long start = System.nanoTime();
+		run(threads, t -> {
+			Random r = new Random(t);
+			for (int i = 0; i < lookups; i++)
+				m.get(0, locations[r.nextInt(locations.length)]);
+			return null;
+		});
+		double seconds = (System.nanoTime() - start) / 1e9;
+		out.printf("%d threads: %.0f lookups/s %s%n", threads, threads * lookups / seconds, m);
+		m.shutdown();
+	}
+
+	/**
+	 * A {@code Task} is performed by each of the threads used in a test.
+	 */
+	interface Task {
+
+		/**
+		 * Performs this {@code Task}.
+		 * 
+		 * @param thread
+		 *            the index of the thread performing this {@code Task}
+		 * @return the result of this {@code Task}
+		 * @throws Exception
+		 *             if an error occurs
+		 */
+		long[] run(int thread) throws Exception;
+
+	}
+
+	/**
+	 * Performs the specified {@code Task} using the specified number of threads and waits for all of them to finish.
+	 * 
+	 * @param threads
+	 *            the number of threads
+	 * @param task
+	 *            a {@code Task}
+	 * @return the result from each thread
+	 * @throws Exception
+	 *             if an error occurs in any thread
+	 */
+	static long[][] run(int threads, Task task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				futures.add(executor.submit((Callable<long[]>) () -> task.run(thread)));
+			}
+			long[][] results = new long[threads][];
+			for (int t = 0; t < threads; t++)
+				results[t] = futures.get(t).get();
+			return results;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -1,11 +1,27 @@
 package storage.test;
 
+import static org.junit.Assert.*;
+
 import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
+import org.junit.Test;
+
+import storage.BufferPoolStatistics;
+import storage.BufferRing;
 import storage.BufferedFileManager;
+import storage.ClockPolicy;
+import storage.LRU2Policy;
+import storage.LRUPolicy;
+import storage.ReplacementPolicy;
+import storage.SerializationCodec;
 import storage.SlottedPage;
 
 /**
@@ -28,6 +44,281 @@ public class BufferedFileManagerTest {
 		test(4, System.out);
 		test(16, System.out);
 		test(64, System.out);
+		test(4, new LRUPolicy(), System.out);
+		test(16, new LRUPolicy(), System.out);
+		test(64, new LRUPolicy(), System.out);
+		test(4, new LRU2Policy(), System.out);
+		test(16, new LRU2Policy(), System.out);
+		test(64, new LRU2Policy(), System.out);
+		test(4, new ClockPolicy(), true, System.out);
+		test(16, new ClockPolicy(), true, System.out);
+		test(64, new ClockPolicy(), true, System.out);
+	}
+
+	/**
+	 * Tests the {@code PageCleaner} of a {@code BufferedFileManager}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void cleaner() throws Exception {
+		BufferedFileManager m = initialize(16);
+		long[] locations = FileManagerTest.add(m, FileManagerTest.additions);
+		for (int i = 0; i < locations.length; i += 16) // updates objects in many pages
+			m.put(0, locations[i], -i);
+		assertTrue(m.dirtyPageCount() > 8);
+		m.startCleaner(0.25, 0.5, 1);
+		for (int i = 0; i < 1000 && m.dirtyPageCount() > 4; i++)
+			Thread.sleep(1);
+		assertTrue(m.dirtyPageCount() <= 4);
+		for (int i = 0; i < locations.length; i++)
+			assertEquals(i % 16 == 0 ? -i : i, m.get(0, locations[i]));
+		m.shutdown();
+		assertEquals(0, m.dirtyPageCount());
+	}
+
+	/**
+	 * Tests read-ahead performed by the thread iterating over a file.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void readAhead() throws Exception {
+		readAhead(false);
+	}
+
+	/**
+	 * Tests read-ahead performed by a background thread.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void backgroundReadAhead() throws Exception {
+		readAhead(true);
+	}
+
+	/**
+	 * Iterates over a file much larger than the buffer with read-ahead enabled and verifies the result.
+	 * 
+	 * @param background
+	 *            {@code true} to read pages ahead in a background thread
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void readAhead(boolean background) throws Exception {
+		BufferedFileManager m = initialize(16);
+		FileManagerTest.add(m, FileManagerTest.additions);
+		m.setReadAhead(8, background);
+		for (int r = 0; r < 2; r++) {
+			int i = 0;
+			for (Object o : SlottedPageTest.list(m.iterator(0)))
+				assertEquals(i++, o);
+			assertEquals(FileManagerTest.additions, i);
+		}
+		if (!background)
+			assertTrue(m.readAheadPageCount() > 0 && m.readAheadHitCount() > 0);
+		m.shutdown();
+	}
+
+	/**
+	 * Tests the minimum and maximum numbers of frames for files sharing the buffer.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void quotas() throws Exception {
+		BufferedFileManager m = initialize(16);
+		m.clear(1);
+		long[] locations = FileManagerTest.add(m, FileManagerTest.additions);
+		long[] others = new long[FileManagerTest.additions];
+		for (int i = 0; i < others.length; i++)
+			others[i] = m.add(1, -i);
+		m.setQuota(0, 0, 4);
+		m.setQuota(1, 6, 16);
+		for (int r = 0; r < 2; r++) {
+			for (int i = 0; i < others.length; i++)
+				assertEquals(-i, m.get(1, others[i]));
+			for (int i = 0; i < locations.length; i++) {
+				assertEquals(i, m.get(0, locations[i]));
+				assertTrue(m.frameCount(0) <= 4);
+			}
+			assertTrue(m.frameCount(1) >= 6);
+		}
+		try {
+			m.setQuota(2, 12, 12); // the minimums would exceed the buffer size
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		m.removeQuota(0);
+		for (int i = 0; i < locations.length; i++)
+			assertEquals(i, m.get(0, locations[i]));
+		assertTrue(m.frameCount(0) > 4);
+		m.shutdown();
+	}
+
+	/**
+	 * Tests the statistics of the {@code BufferedFileManager} and their exposure via JMX.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void statistics() throws Exception {
+		BufferedFileManager m = initialize(16);
+		long[] locations = FileManagerTest.add(m, FileManagerTest.additions);
+		BufferPoolStatistics s = m.statistics();
+		s.reset();
+		for (int i = 0; i < locations.length; i += 64) // updates objects in many pages
+			m.put(0, locations[i], -i);
+		for (int i = 0; i < locations.length; i++)
+			m.get(0, locations[i]);
+		assertEquals(locations.length + (locations.length + 63) / 64, s.getHits() + s.getMisses());
+		assertTrue(s.getMisses() > 0 && s.getHits() > s.getMisses());
+		assertTrue(s.getEvictions() > 0 && s.getDirtyEvictions() > 0);
+		assertEquals(s.getHits(), (long) s.getFileHits().get(0));
+		assertEquals(16, (int) s.getResidentPages().get(0));
+		assertEquals(0, s.getPinnedFrames());
+		ObjectName name = m.registerStatistics();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertEquals(s.getMisses(), server.getAttribute(name, "Misses"));
+		server.invoke(name, "reset", null, null);
+		assertEquals(0L, s.getHits());
+		assertEquals(0L, (long) s.getFileReads().get(0));
+		m.shutdown();
+		assertFalse(server.isRegistered(name));
+	}
+
+	/**
+	 * Tests resizing the buffer while other threads look up objects.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void resize() throws Exception {
+		int pageSize = new SlottedPage(0).data().length;
+		BufferedFileManager m = new BufferedFileManager(16L * pageSize, 64L * pageSize, new LRUPolicy(), true);
+		m.setCodec(new SerializationCodec());
+		m.clear(0);
+		long[] locations = FileManagerTest.add(m, FileManagerTest.additions);
+		assertEquals(16 * pageSize, m.budget());
+		try {
+			m.resize(65);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		m.resize(64);
+		for (int i = 0; i < locations.length; i++)
+			assertEquals(i, m.get(0, locations[i]));
+		assertTrue(m.frameCount(0) > 16);
+		AtomicBoolean done = new AtomicBoolean(false);
+		Thread resizer = new Thread(() -> {
+			try {
+				for (int r = 0; r < 20; r++)
+					m.setBudget((r % 2 == 0 ? 4L : 32L) * pageSize);
+				m.resize(4);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			} finally {
+				done.set(true);
+			}
+		});
+		resizer.start();
+		while (!done.get())
+			for (int i = 0; i < locations.length; i += 7) {
+				m.put(0, locations[i], i);
+				assertEquals(i, m.get(0, locations[i]));
+			}
+		resizer.join();
+		assertTrue(m.frameCount(0) <= 4);
+		assertEquals(4 * pageSize, m.statistics().getBudget());
+		for (int i = 0; i < locations.length; i++)
+			assertEquals(i, m.get(0, locations[i]));
+		m.shutdown();
+	}
+
+	/**
+	 * Tests scans and bulk loads through a {@code BufferRing}, which must leave the rest of the buffer intact.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void ring() throws Exception {
+		BufferedFileManager m = initialize(16, new LRUPolicy());
+		m.clear(1);
+		m.clear(2);
+		FileManagerTest.add(m, FileManagerTest.additions);
+		long[] hot = new long[200];
+		for (int i = 0; i < hot.length; i++)
+			hot[i] = m.add(1, -i);
+		int resident = m.frameCount(1);
+		assertTrue(resident > 4 && resident <= 12);
+		try (BufferRing ring = m.ring(4)) {
+			int i = 0;
+			for (Object o : SlottedPageTest.list(ring.iterator(0)))
+				assertEquals(i++, o);
+			assertEquals(FileManagerTest.additions, i);
+			for (int j = 0; j < FileManagerTest.additions; j++)
+				ring.add(2, j);
+			assertEquals(resident, m.frameCount(1));
+			assertTrue(m.frameCount(2) <= 4);
+		}
+		assertEquals(resident, m.frameCount(1));
+		for (int i = 0; i < hot.length; i++)
+			assertEquals(-i, m.get(1, hot[i]));
+		int i = 0;
+		for (Object o : SlottedPageTest.list(m.iterator(2)))
+			assertEquals(i++, o);
+		assertEquals(FileManagerTest.additions, i);
+		m.shutdown();
+	}
+
+	/**
+	 * Tests resizing the buffer while a {@code BufferRing} holds frames, which must not be handed out twice once the
+	 * buffer grows again and the {@code BufferRing} is closed.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void ringAndResize() throws Exception {
+		BufferedFileManager m = initialize(16, new LRUPolicy());
+		long[] locations = FileManagerTest.add(m, FileManagerTest.additions);
+		try (BufferRing ring = m.ring(4)) {
+			Iterator<Object> i = ring.iterator(0);
+			for (int j = 0; j < FileManagerTest.additions / 2; j++)
+				assertEquals(j, i.next());
+			m.resize(1); // removes the frames of the ring (at least three of them)
+			m.resize(16);
+			for (int j = FileManagerTest.additions / 2; j < FileManagerTest.additions; j++)
+				assertEquals(j, i.next());
+		}
+		for (int k = 0; k < 2; k++)
+			for (int j = 0; j < locations.length; j++)
+				assertEquals(j, m.get(0, locations[j]));
+		m.shutdown();
+	}
+
+	/**
+	 * Returns a new {@code BufferedFileManager} whose files use Java serialization, so that the objects added by
+	 * {@link FileManagerTest#add(storage.FileManager, int)} span many more pages than the buffers used in the tests.
+	 * 
+	 * @param args
+	 *            arguments needed for creating a {@code BufferedFileManager}
+	 * @return a new {@code BufferedFileManager} whose file {@code 0} is empty
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static BufferedFileManager initialize(Object... args) throws Exception {
+		BufferedFileManager m = (BufferedFileManager) FileManagerTest.newInstance(BufferedFileManager.class, args);
+		m.setCodec(new SerializationCodec());
+		m.clear(0);
+		return m;
 	}
 
 	/**
@@ -45,5 +336,44 @@ public class BufferedFileManagerTest {
 		FileManagerTest.test(BufferedFileManager.class, out, bufferSize);
 		out.println();
 	}
+
+	/**
+	 * Tests the {@code BufferedFileManager} implementation using the specified buffer size and
+	 * {@code ReplacementPolicy}.
+	 * 
+	 * @param bufferSize
+	 *            the buffer size
+	 * @param policy
+	 *            a {@code ReplacementPolicy}
+	 * @param out
+	 *            a {@code PrintStream}
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void test(int bufferSize, ReplacementPolicy policy, PrintStream out) throws Exception {
+		test(bufferSize, policy, false, out);
+	}
+
+	/**
+	 * Tests the {@code BufferedFileManager} implementation using the specified buffer size,
+	 * {@code ReplacementPolicy}, and mode.
+	 * 
+	 * @param bufferSize
+	 *            the buffer size
+	 * @param policy
+	 *            a {@code ReplacementPolicy}
+	 * @param offHeap
+	 *            {@code true} to keep the buffer outside the Java heap; {@code false} otherwise
+	 * @param out
+	 *            a {@code PrintStream}
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void test(int bufferSize, ReplacementPolicy policy, boolean offHeap, PrintStream out) throws Exception {
+		out.println("buffer size: " + bufferSize + " pages, policy: " + policy.getClass().getSimpleName()
+				+ (offHeap ? ", off-heap" : ""));
+		FileManagerTest.test(BufferedFileManager.class, out, bufferSize, policy, offHeap);
+		out.println();
+	}
 	
 }
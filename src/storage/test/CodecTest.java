@@ -0,0 +1,134 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Test;
+
+import storage.BinaryCodec;
+import storage.Codec;
+import storage.FileManager;
+import storage.SerializationCodec;
+import storage.SlottedPage;
+import storage.SlottedPage.OverflowException;
+
+/**
+ * This program tests the {@code Codec} implementations.
+ */
+public class CodecTest {
+
+	/**
+	 * Tests encoding and decoding values with a {@code BinaryCodec}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void binary() throws Exception {
+		Codec c = new BinaryCodec();
+		for (Object o : new Object[] { null, 0, -1, 63, -64, Integer.MAX_VALUE, Integer.MIN_VALUE, 0L, Long.MAX_VALUE,
+				Long.MIN_VALUE, "", "abc", "\u00e9\u4e2d\ud83d\ude00", new Date(0), new ArrayList<Object>() })
+			assertEquals(o, decode(c, c.encode(o)));
+		assertEquals(2, c.encode(1).length);
+		assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) decode(c, c.encode(new byte[] { 1, 2, 3 })));
+		Object[] record = new Object[] { 1, 2L, "three", new byte[] { 4 }, null, new Object[] { 5, new Date(6) } };
+		Object[] decoded = (Object[]) decode(c, c.encode(record));
+		assertEquals(Arrays.deepToString(record), Arrays.deepToString(decoded));
+	}
+
+	/**
+	 * Tests that a {@code BinaryCodec} can read objects stored using a {@code SerializationCodec}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void compatibility() throws Exception {
+		Codec binary = new BinaryCodec();
+		Codec serialization = new SerializationCodec();
+		for (Object o : new Object[] { 1, "abc", new Date(0) })
+			assertEquals(o, decode(binary, serialization.encode(o)));
+		FileManager m = new FileManager();
+		m.setCodec(serialization);
+		m.clear(0);
+		long[] locations = FileManagerTest.add(m, 100);
+		m.shutdown();
+		m = new FileManager(); // reads the file using a BinaryCodec
+		for (int i = 0; i < locations.length; i++)
+			assertEquals(i, m.get(0, locations[i]));
+		m.add(0, -1);
+		assertEquals(101, SlottedPageTest.list(m.iterator(0)).size());
+		m.shutdown();
+	}
+
+	/**
+	 * Tests that a {@code SlottedPage} using a {@code BinaryCodec} holds many more {@code Integer}s.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void density() throws Exception {
+		int binary = fill(new SlottedPage(0, new BinaryCodec()));
+		int serialization = fill(new SlottedPage(0, new SerializationCodec()));
+		assertTrue(binary > 5 * serialization);
+	}
+
+	/**
+	 * Tests decoding values stored outside the Java heap.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void direct() throws Exception {
+		Codec c = new BinaryCodec();
+		byte[] b = c.encode(new Object[] { "abc", 1 });
+		ByteBuffer buffer = ByteBuffer.allocateDirect(b.length + 3);
+		buffer.position(3);
+		buffer.put(b);
+		assertEquals("[abc, 1]", Arrays.deepToString((Object[]) c.decode(buffer, 3, b.length)));
+		assertEquals(0, buffer.remaining());
+	}
+
+	/**
+	 * Adds {@code Integer}s to the specified {@code SlottedPage} until it is full.
+	 * 
+	 * @param p
+	 *            a {@code SlottedPage}
+	 * @return the number of {@code Integer}s added
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static int fill(SlottedPage p) throws Exception {
+		int i = 0;
+		try {
+			while (true)
+				p.add(i++);
+		} catch (OverflowException e) {
+		}
+		for (int j = 0; j < i - 1; j++)
+			assertEquals(j, p.get(j));
+		return i - 1;
+	}
+
+	/**
+	 * Decodes the specified bytes.
+	 * 
+	 * @param c
+	 *            a {@code Codec}
+	 * @param b
+	 *            the bytes to decode
+	 * @return the decoded object
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static Object decode(Codec c, byte[] b) throws Exception {
+		return c.decode(ByteBuffer.wrap(b), 0, b.length);
+	}
+
+}
@@ -2,16 +2,29 @@ package storage.test;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Random;
 
 import org.junit.Test;
 
+import storage.BinaryCodec;
+import storage.BufferedFileManager;
+import storage.ClockPolicy;
 import storage.FileManager;
+import storage.PaxLayout;
+import storage.SlottedPage;
 import storage.SlottedPageFile;
 import storage.StorageManager.InvalidLocationException;
 
@@ -29,6 +42,13 @@ public class FileManagerTest {
 
 	static int removals = 10;
 
+	/**
+	 * The IDs of the files that individual tests use besides file {@code 0}, which most tests share. A test that uses
+	 * several files of the same kind uses consecutive IDs starting from its constant.
+	 */
+	static final int LEGACY_FILE = 2, INT_FILE = 3, LONG_FILE = 4, PAX_FILE = 5, PLAIN_FILE = 6, COMPRESSED_FILE = 7,
+			DENSE_FILE = 8, LARGE_PAGE_FILE = 9, BATCH_FILES = 10, CONCURRENT_FILES = 12, STRESS_FILES = 20;
+
 	/**
 	 * Tests {@link FileManager#put(int, Long, Object)}.
 	 * 
@@ -84,6 +104,466 @@ public class FileManagerTest {
 		m.shutdown();
 	}
 
+	/**
+	 * Tests {@link FileManager#getRaw(int, Long)} and {@link FileManager#getRaw(int, Long, java.util.function.Function)}
+	 * with and without a buffer.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void getRaw() throws Exception {
+		for (int bufferSize : new int[] { 0, 4 }) {
+			FileManager m = bufferSize == 0 ? initialize(FileManager.class)
+					: initialize(BufferedFileManager.class, bufferSize, new ClockPolicy(), true);
+			long[] locations = add(m, additions);
+			m.remove(0, locations[1]);
+			BinaryCodec c = new BinaryCodec();
+			for (int i = 0; i < additions; i += 7) {
+				ByteBuffer b = m.getRaw(0, locations[i]);
+				assertEquals(ByteBuffer.wrap(c.encode(i)), b);
+				int length = m.getRaw(0, locations[i], r -> r.remaining());
+				assertEquals(b.remaining(), length);
+			}
+			assertNull(m.getRaw(0, locations[1]));
+			try {
+				m.getRaw(0, concatenate(1000, 0));
+				fail("expecting an " + InvalidLocationException.class.getSimpleName());
+			} catch (InvalidLocationException e) {
+			}
+			m.shutdown();
+		}
+	}
+
+	/**
+	 * Tests {@link FileManager#insert(int, Object)} with and without a buffer.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void insert() throws Exception {
+		FileManager m = initialize(FileManager.class);
+		add(m, additions);
+		m.shutdown();
+		long length = new File(0 + ".dat").length();
+		for (int bufferSize : new int[] { 0, 4 }) {
+			m = bufferSize == 0 ? initialize(FileManager.class) : initialize(BufferedFileManager.class, bufferSize);
+			long[] locations = add(m, additions);
+			for (int round = 0; round < 3; round++) { // objects are repeatedly removed and inserted
+				HashSet<Long> removed = new HashSet<Long>();
+				for (int i = round; i < additions; i += 3) {
+					m.remove(0, locations[i]);
+					removed.add(locations[i]);
+				}
+				for (int i = round; i < additions; i += 3) {
+					locations[i] = m.insert(0, -i);
+					assertTrue(removed.remove(locations[i]));
+				}
+			}
+			m.shutdown();
+			assertEquals(length, new File(0 + ".dat").length());
+			FileManager f = new FileManager();
+			for (int i = 0; i < additions; i++)
+				assertEquals(-i, f.get(0, locations[i]));
+			f.shutdown();
+		}
+	}
+
+	/**
+	 * Tests files with different page sizes managed together with and without a buffer.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void pageSize() throws Exception {
+		int large = 16 * 1024;
+		for (int bufferSize : new int[] { 0, 4, 8 }) {
+			FileManager m = bufferSize == 0 ? initialize(FileManager.class)
+					: bufferSize == 4 ? initialize(BufferedFileManager.class, bufferSize)
+							: initialize(BufferedFileManager.class, (long) bufferSize * large, (long) bufferSize * large,
+									new ClockPolicy(), true, large);
+			m.clear(LARGE_PAGE_FILE);
+			m.setPageSize(LARGE_PAGE_FILE, large);
+			long[] small = add(m, additions);
+			long[] locations = new long[additions];
+			for (int i = 0; i < additions; i++)
+				locations[i] = m.add(LARGE_PAGE_FILE, "object " + i);
+			assertEquals(new SlottedPage(0).data().length, m.pageSize(0));
+			assertEquals(large, m.pageSize(LARGE_PAGE_FILE));
+			try {
+				m.setPageSize(LARGE_PAGE_FILE, 4096);
+				fail("expecting an " + IllegalStateException.class.getSimpleName());
+			} catch (IllegalStateException e) {
+			}
+			m.shutdown();
+			FileManager f = new FileManager(); // the page size of each file is read from the file
+			for (int i = 0; i < additions; i++) {
+				assertEquals(i, f.get(0, small[i]));
+				assertEquals("object " + i, f.get(LARGE_PAGE_FILE, locations[i]));
+			}
+			assertEquals(large, f.pageSize(LARGE_PAGE_FILE));
+			int pages = (int) (locations[additions - 1] >> 32) + 1;
+			assertEquals(4096 + (long) pages * large, new File(LARGE_PAGE_FILE + ".dat").length());
+			f.shutdown();
+		}
+		try {
+			new FileManager().setPageSize(3000);
+			fail("expecting an " + IllegalArgumentException.class.getSimpleName());
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	/**
+	 * Tests a file created before page sizes were stored in files, which has no header.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void legacyFile() throws Exception {
+		new File(LEGACY_FILE + ".dat").delete();
+		ArrayList<Object> list = new ArrayList<Object>();
+		try (FileOutputStream out = new FileOutputStream(LEGACY_FILE + ".dat")) {
+			for (int i = 0; i < 2; i++) {
+				SlottedPage p = new SlottedPage(i);
+				for (int j = 0; j < 10; j++) {
+					p.add(i * 10 + j);
+					list.add(i * 10 + j);
+				}
+				out.write(p.data());
+			}
+		}
+		FileManager m = new FileManager();
+		assertEquals(list, SlottedPageTest.list(m.iterator(LEGACY_FILE)));
+		assertEquals(10, m.get(LEGACY_FILE, concatenate(1, 0)));
+		m.add(LEGACY_FILE, -1);
+		list.add(-1);
+		m.shutdown();
+		assertEquals(2 * new SlottedPage(0).data().length, new File(LEGACY_FILE + ".dat").length());
+		m = new BufferedFileManager(4);
+		assertEquals(list, SlottedPageTest.list(m.iterator(LEGACY_FILE)));
+		m.shutdown();
+	}
+
+	/**
+	 * Tests objects that do not fit in a {@code SlottedPage} and thus are stored in overflow pages.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void overflow() throws Exception {
+		for (FileManager m : managers()) {
+			m.clear(0);
+			Random r = new Random(0);
+			ArrayList<Object> list = new ArrayList<Object>();
+			ArrayList<Long> locations = new ArrayList<Long>();
+			for (int i = 0; i < 30; i++) { // small objects and strings of up to 29000 characters
+				char[] c = new char[i % 3 == 0 ? 1000 * i : 1];
+				for (int j = 0; j < c.length; j++)
+					c[j] = (char) ('a' + r.nextInt(26));
+				list.add(new String(c));
+				locations.add(m.add(0, list.get(i)));
+			}
+			byte[] bytes = new byte[50000];
+			r.nextBytes(bytes);
+			long location = m.add(0, bytes);
+			assertArrayEquals(bytes, (byte[]) m.get(0, location));
+			assertArrayEquals(new BinaryCodec().encode(bytes), readAll(m.getStream(0, location)));
+			for (int i = 0; i < list.size(); i++) {
+				assertEquals(list.get(i), m.get(0, locations.get(i)));
+				ByteBuffer b = m.getRaw(0, locations.get(i));
+				byte[] raw = new byte[b.remaining()];
+				b.get(raw);
+				assertArrayEquals(raw, readAll(m.getStream(0, locations.get(i))));
+			}
+			for (int i : new int[] { 1, 9 }) { // small and large objects replaced by large ones
+				char[] c = new char[20000 + i];
+				Arrays.fill(c, 'x');
+				assertEquals(list.get(i), m.put(0, locations.get(i), new String(c)));
+				list.set(i, new String(c));
+				assertEquals(list.get(i), m.get(0, locations.get(i)));
+			}
+			assertEquals(list.get(27), m.remove(0, locations.get(27)));
+			assertNull(m.get(0, locations.get(27)));
+			assertNull(m.getStream(0, locations.get(27)));
+			list.remove(27);
+			assertArrayEquals(bytes, (byte[]) m.remove(0, location));
+			assertEquals(list, SlottedPageTest.list(m.iterator(0)));
+			m.shutdown();
+			FileManager f = new FileManager();
+			assertEquals(list, SlottedPageTest.list(f.iterator(0)));
+			f.shutdown();
+		}
+	}
+
+	/**
+	 * Tests files whose pages are compressed with and without a buffer.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void compression() throws Exception {
+		FileManager f = new FileManager();
+		f.clear(PLAIN_FILE);
+		for (int i = 0; i < additions; i++)
+			f.add(PLAIN_FILE, "object " + i % 10);
+		f.shutdown();
+		long length = new File(PLAIN_FILE + ".dat").length();
+		byte[] bytes = new byte[1000]; // fills a page that cannot be compressed
+		new Random(0).nextBytes(bytes);
+		for (FileManager m : managers()) {
+			m.clear(COMPRESSED_FILE);
+			m.setCompression(COMPRESSED_FILE, true);
+			ArrayList<Object> list = new ArrayList<Object>();
+			ArrayList<Long> locations = new ArrayList<Long>();
+			for (int i = 0; i < additions; i++) {
+				list.add("object " + i % 10);
+				locations.add(m.add(COMPRESSED_FILE, list.get(i)));
+			}
+			for (int i = 0; i < additions; i += 3) { // pages are saved again after they are updated
+				list.set(i, "object " + (9 - i % 10));
+				m.put(COMPRESSED_FILE, locations.get(i), list.get(i));
+			}
+			long location = m.add(COMPRESSED_FILE, bytes);
+			m.shutdown();
+			assertTrue(new File(COMPRESSED_FILE + ".dat").length()
+					+ new File(COMPRESSED_FILE + ".dat.map").length() < length);
+			f = new FileManager(); // finds in the file that its pages are compressed
+			assertArrayEquals(bytes, (byte[]) f.get(COMPRESSED_FILE, location));
+			for (int i = 0; i < additions; i++)
+				assertEquals(list.get(i), f.get(COMPRESSED_FILE, locations.get(i)));
+			f.shutdown();
+		}
+	}
+
+	/**
+	 * Tests files whose records are stored column by column using a {@code PaxLayout} with and without a buffer.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void pax() throws Exception {
+		PaxLayout layout = new PaxLayout(PaxLayout.Type.LONG, PaxLayout.Type.INT);
+		for (FileManager m : managers()) {
+			m.clear(PAX_FILE);
+			m.setLayout(PAX_FILE, layout);
+			long[] locations = new long[additions];
+			for (int i = 0; i < additions; i++)
+				locations[i] = m.add(PAX_FILE, new Object[] { (long) i, i % 7 });
+			int pages = (additions + layout.capacity(m.pageSize(PAX_FILE)) - 1) / layout.capacity(m.pageSize(PAX_FILE));
+			// the header and full pages
+			assertEquals(4096 + pages * m.pageSize(PAX_FILE), new File(PAX_FILE + ".dat").length());
+			for (int i = 0; i < additions; i += 10)
+				m.remove(PAX_FILE, locations[i]);
+			for (int i = 1; i < additions; i += 10)
+				assertArrayEquals(new Object[] { (long) i, i % 7 },
+						(Object[]) m.put(PAX_FILE, locations[i], new Object[] { -1L, 0 }));
+			ArrayList<Object> expected = new ArrayList<Object>();
+			for (int i = 0; i < additions; i++)
+				if (i % 10 != 0)
+					expected.add(i % 10 == 1 ? 0 : i % 7);
+			assertEquals(expected, SlottedPageTest.list(m.iterator(PAX_FILE, 1)));
+			assertEquals(expected.size(), SlottedPageTest.list(m.iterator(PAX_FILE)).size());
+			m.shutdown();
+			FileManager f = new FileManager(); // the layout is restored from the header of the file
+			assertEquals(expected, SlottedPageTest.list(f.iterator(PAX_FILE, 1)));
+			assertArrayEquals(new Object[] { 2L, 2 }, (Object[]) f.get(PAX_FILE, locations[2]));
+			f.setLayout(PAX_FILE, new PaxLayout(PaxLayout.Type.LONG, PaxLayout.Type.INT)); // the same schema
+			for (PaxLayout other : new PaxLayout[] { null, PaxLayout.LONGS })
+				try {
+					f.setLayout(PAX_FILE, other);
+					fail();
+				} catch (IllegalStateException e) {
+				}
+			f.shutdown();
+		}
+		FileManager m = initialize(FileManager.class); // records stored in slots are projected as well
+		m.add(0, new Object[] { 1, "a" });
+		m.add(0, "not a record");
+		m.add(0, new Object[] { 2, "b" });
+		assertEquals(Arrays.asList("a", "b"), SlottedPageTest.list(m.iterator(0, 1)));
+		m.shutdown();
+	}
+
+	/**
+	 * Tests files of raw {@code long} and {@code int} values with and without a buffer.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void primitives() throws Exception {
+		for (FileManager m : managers()) {
+			m.clear(LONG_FILE);
+			m.clear(INT_FILE);
+			m.setLayout(LONG_FILE, PaxLayout.LONGS);
+			m.setLayout(INT_FILE, PaxLayout.INTS);
+			long[] locations = new long[additions];
+			long[] intLocations = new long[additions];
+			for (int i = 0; i < additions; i++) {
+				locations[i] = m.addLong(LONG_FILE, (long) i << 32);
+				intLocations[i] = m.addInt(INT_FILE, -i);
+			}
+			for (int i = 0; i < additions; i += 3) {
+				m.remove(LONG_FILE, locations[i]);
+				m.remove(INT_FILE, intLocations[i]);
+			}
+			for (int i = 0; i < additions; i++)
+				try {
+					assertEquals((long) i << 32, m.getLong(LONG_FILE, locations[i]));
+					assertEquals(-i, m.getInt(INT_FILE, intLocations[i]));
+					assertTrue(i % 3 != 0);
+				} catch (InvalidLocationException e) {
+					assertTrue(i % 3 == 0);
+				}
+			long[] sum = new long[2];
+			m.iterateLongs(LONG_FILE, v -> sum[0] += v >> 32);
+			m.iterateInts(INT_FILE, v -> sum[1] += v);
+			long expected = 0;
+			for (int i = 0; i < additions; i++)
+				if (i % 3 != 0)
+					expected += i;
+			assertEquals(expected, sum[0]);
+			assertEquals(-expected, sum[1]);
+			try {
+				m.addLong(INT_FILE, 0);
+				fail("expecting an " + IllegalStateException.class.getSimpleName());
+			} catch (IllegalStateException e) {
+			}
+			int pageSize = m.pageSize(LONG_FILE), capacity = PaxLayout.LONGS.capacity(pageSize);
+			m.shutdown();
+			assertEquals(4096 + (additions + capacity - 1) / capacity * pageSize,
+					new File(LONG_FILE + ".dat").length());
+		}
+	}
+
+	/**
+	 * Tests files whose pages have dense slots with and without a buffer.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void denseSlots() throws Exception {
+		FileManager f = initialize(FileManager.class);
+		add(f, additions);
+		f.shutdown();
+		long length = new File(0 + ".dat").length();
+		for (FileManager m : managers()) {
+			m.clear(DENSE_FILE);
+			m.setDenseSlots(DENSE_FILE, true);
+			long[] locations = new long[additions];
+			for (int i = 0; i < additions; i++)
+				locations[i] = m.add(DENSE_FILE, i);
+			for (int i = 0; i < additions; i += 5)
+				m.remove(DENSE_FILE, locations[i]);
+			for (int i = 1; i < additions; i += 5)
+				m.put(DENSE_FILE, locations[i], -i);
+			HashSet<Long> removed = new HashSet<Long>();
+			for (int i = 0; i < additions; i += 5)
+				removed.add(locations[i]);
+			for (int i = 0; i < additions; i += 5) // the slots of the removed objects are reused
+				assertTrue(removed.remove(m.insert(DENSE_FILE, 0)));
+			m.shutdown();
+			assertTrue(new File(DENSE_FILE + ".dat").length() < length);
+			f = new FileManager();
+			for (int i = 0; i < additions; i++)
+				assertEquals(i % 5 == 0 ? 0 : i % 5 == 1 ? -i : i, f.get(DENSE_FILE, locations[i]));
+			assertEquals(additions, SlottedPageTest.list(f.iterator(DENSE_FILE)).size());
+			f.shutdown();
+		}
+	}
+
+	/**
+	 * Tests {@link FileManager#addAll(int, Iterable)}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void addAll() throws Exception {
+		int copy = BATCH_FILES + 1;
+		for (FileManager m : managers()) {
+			m.clear(BATCH_FILES);
+			m.clear(copy);
+			ArrayList<Object> list = new ArrayList<Object>();
+			for (int i = 0; i < additions; i++)
+				// the pointer to the second large object is stored in a new page, which the next objects fill
+				list.add(i / 2 == additions / 4 ? new String(new char[m.pageSize(BATCH_FILES) * 2]) : i);
+			ArrayList<Long> expected = new ArrayList<Long>();
+			for (int i = 0; i < 3; i++) { // a partially filled last page
+				m.add(BATCH_FILES, -i);
+				m.add(copy, -i);
+			}
+			for (Object o : list)
+				expected.add(m.add(BATCH_FILES, o));
+			assertEquals(expected, m.addAll(copy, list)); // the objects are placed as if added one at a time
+			for (int i = 0; i < list.size(); i++)
+				assertEquals(list.get(i), m.get(copy, expected.get(i)));
+			m.shutdown();
+			assertEquals(new File(BATCH_FILES + ".dat").length(), new File(copy + ".dat").length());
+			FileManager f = new FileManager();
+			assertEquals(SlottedPageTest.list(f.iterator(BATCH_FILES)), SlottedPageTest.list(f.iterator(copy)));
+			f.shutdown();
+		}
+	}
+
+	/**
+	 * Tests concurrent lookups and updates on a {@code FileManager}, whose {@code SlottedPageFile}s are read and
+	 * written without synchronization.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void concurrentAccess() throws Exception {
+		FileManager m = initialize(FileManager.class);
+		int threads = BufferedFileManagerStressTest.threads;
+		for (int t = 0; t < threads; t++)
+			m.clear(CONCURRENT_FILES + t);
+		long[][] locations = BufferedFileManagerStressTest.run(threads, t -> {
+			long[] l = new long[additions];
+			for (int i = 0; i < additions; i++)
+				l[i] = m.add(CONCURRENT_FILES + t, t * additions + i);
+			return l;
+		});
+		BufferedFileManagerStressTest.run(threads, t -> {
+			for (int i = 0; i < additions; i += 2)
+				m.put(CONCURRENT_FILES + t, locations[t][i], -(t * additions + i));
+			for (int u = 0; u < threads; u++) // the files updated by the other threads are also read
+				for (int i = 1; i < additions; i += 2)
+					assertEquals(u * additions + i, m.get(CONCURRENT_FILES + u, locations[u][i]));
+			return null;
+		});
+		for (int t = 0; t < threads; t++)
+			for (int i = 0; i < additions; i++)
+				assertEquals(i % 2 == 0 ? -(t * additions + i) : t * additions + i,
+						m.get(CONCURRENT_FILES + t, locations[t][i]));
+		m.shutdown();
+	}
+
+	/**
+	 * Reads all of the bytes from the specified {@code InputStream}.
+	 * 
+	 * @param in
+	 *            an {@code InputStream}
+	 * @return the bytes read from the specified {@code InputStream}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] b = new byte[100];
+		for (int n = in.read(b); n >= 0; n = in.read(b))
+			out.write(b, 0, n);
+		return out.toByteArray();
+	}
+
 	/**
 	 * Tests {@link FileManager#remove(int, Long)}.
 	 * 
@@ -226,6 +706,22 @@ public class FileManagerTest {
 			}
 	}
 
+	/**
+	 * Creates the {@link FileManager}s against which the tests of both buffered and unbuffered access run: one without
+	 * a buffer, one with a buffer of 4 frames, and one with a buffer of 8 frames outside the Java heap managed by a
+	 * {@link ClockPolicy}. Each of them must be shut down before the next one is used.
+	 * 
+	 * @return the {@link FileManager}s to test
+	 * @throws InstantiationException
+	 *             if an instantiation exception occurs
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	static FileManager[] managers() throws InstantiationException, IOException {
+		return new FileManager[] { new FileManager(), new BufferedFileManager(4),
+				newInstance(BufferedFileManager.class, 8, new ClockPolicy(), true) };
+	}
+
 	/**
 	 * Creates a new {@link FileManager}.
 	 * 
@@ -239,7 +735,10 @@ public class FileManagerTest {
 	 */
 	static FileManager newInstance(Class<? extends FileManager> c, Object... args) throws InstantiationException {
 		try {
-			return (FileManager) c.getConstructors()[0].newInstance(args);
+			for (Constructor<?> constructor : c.getConstructors())
+				if (constructor.getParameterCount() == args.length)
+					return (FileManager) constructor.newInstance(args);
+			throw new InstantiationException();
 		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException | SecurityException e) {
 			e.printStackTrace();
 			throw new InstantiationException();
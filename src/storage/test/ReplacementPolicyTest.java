@@ -0,0 +1,113 @@
+package storage.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import storage.ClockPolicy;
+import storage.LRU2Policy;
+import storage.LRUPolicy;
+import storage.ReplacementPolicy;
+
+/**
+ * This program tests the {@link ReplacementPolicy} implementations.
+ */
+public class ReplacementPolicyTest {
+
+	/**
+	 * Tests {@link LRUPolicy}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void lru() throws Exception {
+		ReplacementPolicy p = initialize(new LRUPolicy(), 4);
+		assertEquals(0, p.victim());
+		p.accessed(0);
+		assertEquals(1, p.victim());
+		p.removed(1);
+		assertEquals(2, p.victim());
+		p.accessed(2);
+		p.accessed(3);
+		assertEquals(0, p.victim());
+	}
+
+	/**
+	 * Tests {@link ClockPolicy}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void clock() throws Exception {
+		ReplacementPolicy p = initialize(new ClockPolicy(), 4);
+		// every reference bit is set, so the hand clears all of them and comes back to frame 0
+		assertEquals(0, p.victim());
+		p.accessed(1);
+		// frame 1 gets a second chance
+		assertEquals(2, p.victim());
+		p.removed(3);
+		assertEquals(0, p.victim());
+		assertEquals(1, p.victim());
+	}
+
+	/**
+	 * Tests {@link LRU2Policy}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void lru2() throws Exception {
+		ReplacementPolicy p = initialize(new LRU2Policy(), 4);
+		assertEquals(0, p.victim());
+		p.accessed(1);
+		p.accessed(0);
+		// frame 1 and frame 0 have been referenced twice, so frame 2 is chosen although frame 1 is older
+		assertEquals(2, p.victim());
+		p.accessed(3);
+		p.accessed(2);
+		p.accessed(2);
+		// the consecutive references to frame 2 are correlated and count as one
+		p.removed(3);
+		assertEquals(0, p.victim());
+		// a page brought in by a scan is evicted before the frames referenced twice
+		p.removed(0);
+		p.accessed(0);
+		assertEquals(0, p.victim());
+	}
+
+	/**
+	 * Tests a {@link ReplacementPolicy} with no frames in use.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void empty() throws Exception {
+		ReplacementPolicy p = new LRUPolicy();
+		p.resize(4);
+		assertEquals(-1, p.victim());
+		p = new ClockPolicy();
+		p.resize(4);
+		assertEquals(-1, p.victim());
+	}
+
+	/**
+	 * Resizes the specified {@link ReplacementPolicy} and fills all of its frames by accessing them in ascending order.
+	 * 
+	 * @param p
+	 *            a {@link ReplacementPolicy}
+	 * @param frames
+	 *            the number of frames
+	 * @return the specified {@link ReplacementPolicy}
+	 */
+	static ReplacementPolicy initialize(ReplacementPolicy p, int frames) {
+		p.resize(frames);
+		for (int i = 0; i < frames; i++)
+			p.accessed(i);
+		return p;
+	}
+
+}
@@ -5,12 +5,22 @@ import static org.junit.Assert.*;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import org.junit.Test;
 
+import storage.BinaryCodec;
+import storage.Codec;
+import storage.PaxLayout;
+import storage.SerializationCodec;
 import storage.SlottedPage;
+import storage.SlottedPageFile;
 import storage.SlottedPage.IndexOutOfBoundsException;
 import storage.SlottedPage.OverflowException;
 
@@ -22,6 +32,22 @@ import storage.SlottedPage.OverflowException;
  */
 public class SlottedPageTest {
 
+	/**
+	 * The main program, which compares the time spent compacting {@code SlottedPage}s by moving the bytes of their
+	 * objects with the time spent deserializing and serializing those objects again.
+	 * 
+	 * @param args
+	 *            the String arguments
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	public static void main(String[] args) throws Exception {
+		for (int i = 0; i < 3; i++) { // the first rounds warm up the JVM
+			compaction(new SerializationCodec(), 2000, System.out);
+			compaction(new BinaryCodec(), 2000, System.out);
+		}
+	}
+
 	/**
 	 * Tests {@link SlottedPage#add(Object)}.
 	 * 
@@ -101,6 +127,85 @@ public class SlottedPageTest {
 		assertEquals(list, list(p.iterator()));
 	}
 
+	/**
+	 * Tests that {@link SlottedPage#iterator()} deserializes objects only as it advances.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void lazyIterator() throws Exception {
+		SlottedPage p = new SlottedPage(0);
+		p.add("123");
+		p.add("456");
+		Iterator<Object> i = p.iterator();
+		assertEquals("123", i.next());
+		p.remove(1); // seen by the iterator since the object has not been deserialized yet
+		p.add("789");
+		assertEquals("789", i.next());
+		assertFalse(i.hasNext());
+	}
+
+	/**
+	 * Tests {@link SlottedPage#spliterator()} and {@link SlottedPage#stream()}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void stream() throws Exception {
+		SlottedPage p = new SlottedPage(0, new BinaryCodec());
+		ArrayList<Object> list = new ArrayList<Object>();
+		try {
+			for (int i = 0; i < Integer.MAX_VALUE; i++) {
+				p.add(i);
+				list.add(i);
+			}
+		} catch (OverflowException e) {
+		}
+		for (int i = 0; i < list.size(); i += 10) {
+			p.remove(i);
+			list.set(i, null);
+		}
+		list.removeIf(o -> o == null);
+		assertEquals(list, p.stream().collect(Collectors.toList()));
+		assertEquals(list, StreamSupport.stream(p.spliterator(), true).collect(Collectors.toList()));
+		assertEquals(list.stream().mapToInt(o -> (Integer) o).sum(),
+				StreamSupport.stream(p.spliterator(), true).mapToInt(o -> (Integer) o).sum());
+		assertEquals(list.subList(0, 5), p.stream().limit(5).collect(Collectors.toList()));
+	}
+
+	/**
+	 * Tests {@link SlottedPage#cursor()}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void cursor() throws Exception {
+		SlottedPage p = new SlottedPage(0);
+		p.add("123");
+		p.add("456");
+		p.add("789");
+		p.remove(1);
+		SlottedPage.Cursor c = p.cursor();
+		assertTrue(c.next());
+		assertEquals(0, c.index());
+		assertEquals(readInt(p.data(), Integer.BYTES), c.location());
+		assertEquals("123", c.get());
+		assertTrue(c.next());
+		assertEquals(2, c.index());
+		assertEquals(p.getRaw(2), c.getRaw());
+		assertEquals("789", c.get());
+		assertFalse(c.next());
+		assertEquals(-1, c.location());
+		try {
+			c.get();
+			fail("expecting a " + NoSuchElementException.class.getSimpleName());
+		} catch (NoSuchElementException e) {
+		}
+	}
+
 	/**
 	 * Tests {@link SlottedPage#compact()}.
 	 */
@@ -130,6 +235,289 @@ public class SlottedPageTest {
 		assertEquals(list(p.iterator()), l);
 	}
 
+	/**
+	 * Tests that {@link SlottedPage#compact()} keeps the objects and their indices and reclaims all unused space.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void compactBytes() throws Exception {
+		int size = new SlottedPage(0).data().length;
+		CompactablePage[] pages = { new CompactablePage(new SerializationCodec()),
+				new CompactablePage(new BinaryCodec()), new CompactablePage(ByteBuffer.allocateDirect(size)) };
+		for (CompactablePage p : pages) {
+			ArrayList<Object> objects = new ArrayList<Object>();
+			for (int i = 0; i < 30; i++) {
+				Object o = i % 4 == 0 ? "object " + i : i % 4 == 1 ? i : i % 4 == 2 ? null : new Object[] { i, "" + i };
+				p.add(o);
+				objects.add(o);
+			}
+			for (int i = 0; i < objects.size(); i += 3) {
+				p.remove(i);
+				objects.set(i, "removed");
+			}
+			int used = 0;
+			for (int i = 0; i < objects.size(); i++)
+				if (i % 3 != 0)
+					used += p.getRaw(i).remaining();
+			int headerSize = Integer.BYTES * (objects.size() + 1);
+			assertTrue(p.freeSpaceSize() < size - headerSize - used);
+			p.compact();
+			assertEquals(size - headerSize - used, p.freeSpaceSize());
+			p.compact();
+			assertEquals(size - headerSize - used, p.freeSpaceSize());
+			for (int i = 0; i < objects.size(); i++)
+				if (i % 3 == 0)
+					assertNull(p.get(i));
+				else if (objects.get(i) instanceof Object[])
+					assertArrayEquals((Object[]) objects.get(i), (Object[]) p.get(i));
+				else
+					assertEquals(objects.get(i), p.get(i));
+		}
+	}
+
+	/**
+	 * Tests {@link SlottedPage#freeSpaceSize()} as objects are added and removed.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void freeSpaceSize() throws Exception {
+		SlottedPage p = new SlottedPage(0);
+		ArrayList<Integer> sizes = new ArrayList<Integer>();
+		sizes.add(p.freeSpaceSize());
+		for (int i = 0; i < 10; i++) {
+			p.add("object " + i);
+			assertTrue(p.freeSpaceSize() < sizes.get(i));
+			sizes.add(p.freeSpaceSize());
+		}
+		p.remove(9); // the space of the last object becomes free (the header keeps its location)
+		assertEquals(sizes.get(9) - Integer.BYTES, p.freeSpaceSize());
+		p.remove(0); // the space of the first object is reclaimed only by compaction
+		assertEquals(sizes.get(9) - Integer.BYTES, p.freeSpaceSize());
+	}
+
+	/**
+	 * Tests {@link SlottedPage#insert(Object)}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void insert() throws Exception {
+		SlottedPage p = new SlottedPage(0);
+		for (int i = 0; i < 10; i++)
+			assertEquals(i, p.insert(i));
+		p.remove(7);
+		p.remove(2);
+		p.remove(5);
+		p.remove(5);
+		assertEquals(5, p.insert("a")); // the most recently freed slot is reused first
+		assertEquals(2, p.insert("b"));
+		assertEquals(7, p.insert("c"));
+		assertEquals(10, readInt(p.data(), 0)); // the header has not grown
+		assertEquals(10, p.insert("d"));
+		assertEquals(p.insert("e"), p.add("f") - 1);
+		assertEquals("[0, 1, b, 3, 4, a, 6, c, 8, 9, d, e, f]", list(p.iterator()).toString());
+
+		// the chain of free slots is rebuilt after the page is read from a file
+		p.remove(9);
+		p.remove(3);
+		writeInt(p.data(), (1 + 1) * Integer.BYTES, -1); // removes an object as done before free slots were chained
+		SlottedPageFile f = new SlottedPageFile(0 + ".dat");
+		f.clear();
+		f.save(p);
+		SlottedPage q = f.get(0);
+		f.close();
+		assertEquals(1, q.insert("g"));
+		assertEquals(3, q.insert("h"));
+		assertEquals(9, q.insert("i"));
+		assertEquals(13, q.insert("j"));
+	}
+
+	/**
+	 * Tests {@code SlottedPage}s with dense slots.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void denseSlots() throws Exception {
+		SlottedPageFile f = new SlottedPageFile(0 + ".dat");
+		f.clear();
+		int sparse = CodecTest.fill(f.newPage(0));
+		f.setDenseSlots(true);
+		SlottedPage p = f.newPage(0);
+		assertTrue(p.denseSlots());
+		assertTrue(CodecTest.fill(p) > sparse * 5 / 4); // small objects take 2 or 3 bytes and their slots take 2
+		p = f.newPage(0);
+		for (int i = 0; i < 10; i++)
+			p.add(i);
+		p.remove(2);
+		p.remove(5);
+		assertEquals(5, p.insert("a"));
+		p.remove(7);
+		f.save(p);
+		SlottedPage q = f.get(0); // the chain of free slots is rebuilt from the bits marking removed objects
+		assertEquals("[0, 1, 3, 4, a, 6, 8, 9]", list(q.iterator()).toString());
+		assertEquals(2, q.insert("b"));
+		assertEquals(7, q.insert("c"));
+		assertEquals(10, q.insert("d"));
+		f.close();
+		f = new SlottedPageFile(0 + ".dat");
+		assertTrue(f.denseSlots());
+		f.clear();
+		try {
+			f.setPageSize(SlottedPage.MAX_SIZE);
+			fail("expecting an " + IllegalArgumentException.class.getSimpleName());
+		} catch (IllegalArgumentException e) {
+		}
+		f.setDenseSlots(false);
+		f.close();
+	}
+
+	/**
+	 * Tests {@code SlottedPage}s of different sizes.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void size() throws Exception {
+		int small = CodecTest.fill(new SlottedPage(0, 4096, new BinaryCodec()));
+		SlottedPage p = new SlottedPage(0, 64 * 1024, new BinaryCodec());
+		assertEquals(64 * 1024, p.size());
+		assertEquals(64 * 1024, p.data().length);
+		assertTrue(CodecTest.fill(p) > 15 * small);
+		for (int size : new int[] { 512, 3000, 128 * 1024 })
+			try {
+				new SlottedPage(0, size, new BinaryCodec());
+				fail("expecting an " + IllegalArgumentException.class.getSimpleName());
+			} catch (IllegalArgumentException e) {
+			}
+	}
+
+	/**
+	 * Tests {@code SlottedPage}s that store records column by column using a {@code PaxLayout}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void pax() throws Exception {
+		PaxLayout layout = new PaxLayout(PaxLayout.Type.INT, PaxLayout.Type.LONG, PaxLayout.Type.DOUBLE);
+		SlottedPage p = new SlottedPage(0, SlottedPage.MIN_SIZE, new BinaryCodec(), layout);
+		int capacity = layout.capacity(SlottedPage.MIN_SIZE);
+		assertEquals(50, capacity); // (1024 - 4) bytes for 20 bytes and 1 bit per record
+		ArrayList<Object> list = new ArrayList<Object>();
+		for (int i = 0; i < capacity; i++) {
+			assertEquals(i, p.add(new Object[] { i, (long) -i, i / 2.0 }));
+			list.add(i);
+		}
+		try {
+			p.add(new Object[] { 0, 0L, 0.0 });
+			fail("expecting an " + OverflowException.class.getSimpleName());
+		} catch (OverflowException e) {
+		}
+		try {
+			p.add(new Object[] { 0, 0, 0.0 });
+			fail("expecting an " + IOException.class.getSimpleName());
+		} catch (IOException e) {
+		}
+		assertArrayEquals(new Object[] { 7, -7L, 3.5 }, (Object[]) p.get(7));
+		assertArrayEquals(new Object[] { 7, -7L, 3.5 }, (Object[]) p.remove(7));
+		assertNull(p.get(7));
+		assertNull(p.remove(7));
+		list.remove(7);
+		assertArrayEquals(new Object[] { 8, -8L, 4.0 }, (Object[]) p.put(8, new Object[] { 80, -80L, 40.0 }));
+		list.set(7, 80);
+		assertEquals(list, list(p.iterator()).stream().map(o -> ((Object[]) o)[0]).collect(Collectors.toList()));
+		ByteBuffer column = layout.column(p, 0); // the first field of every record, including the removed one
+		assertEquals(capacity * Integer.BYTES, column.remaining());
+		assertEquals(80, column.getInt(8 * Integer.BYTES));
+		assertArrayEquals(new Object[] { 80, -80L, 40.0 }, decode(new BinaryCodec(), p.getRaw(8)));
+		assertEquals(7, p.insert(new Object[] { 70, -70L, 35.0 }));
+		assertEquals(capacity, list(p.iterator()).size());
+	}
+
+	/**
+	 * Decodes the bytes in the specified {@code ByteBuffer} using the specified {@code Codec}.
+	 * 
+	 * @param codec
+	 *            a {@code Codec}
+	 * @param b
+	 *            a {@code ByteBuffer}
+	 * @return the object decoded from the bytes in the specified {@code ByteBuffer}
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	static Object[] decode(Codec codec, ByteBuffer b) throws IOException {
+		return (Object[]) codec.decode(b, 0, b.remaining());
+	}
+
+	/**
+	 * Tests {@link SlottedPage#getRaw(int)}.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void getRaw() throws Exception {
+		Codec[] codecs = { new SerializationCodec(), new BinaryCodec() };
+		for (Codec c : codecs) {
+			SlottedPage p = new SlottedPage(0, c);
+			Object[] objects = { 1, "abc", new Object[] { 2L, "d" }, null };
+			for (Object o : objects)
+				p.add(o);
+			p.add(new byte[100]);
+			p.remove(4); // the bytes of the removed object remain in the page
+			for (int i = 0; i < objects.length; i++) {
+				ByteBuffer b = p.getRaw(i);
+				assertTrue(b.isReadOnly());
+				byte[] bytes = c.encode(objects[i]);
+				assertEquals(bytes.length, b.remaining());
+				assertEquals(ByteBuffer.wrap(bytes), b);
+			}
+			assertNull(p.getRaw(4));
+			try {
+				p.getRaw(5);
+				fail("expecting an " + IndexOutOfBoundsException.class.getSimpleName());
+			} catch (IndexOutOfBoundsException e) {
+			}
+		}
+	}
+
+	/**
+	 * Tests a {@link SlottedPage} that stores its data outside the Java heap.
+	 * 
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	@Test
+	public void direct() throws Exception {
+		int size = new SlottedPage(0).data().length;
+		ByteBuffer b = ByteBuffer.allocateDirect(3 * size);
+		b.position(size);
+		SlottedPage p = new SlottedPage(0, b.slice());
+		ArrayList<Object> list = new ArrayList<Object>();
+		try {
+			for (int i = 0; i < Integer.MAX_VALUE; i++) {
+				p.add(i);
+				list.add(i);
+			}
+		} catch (OverflowException e) {
+		}
+		assertEquals(list, list(p.iterator()));
+		assertEquals(p.remove(3), list.remove(3));
+		p.add("abc");
+		list.add("abc");
+		assertEquals(list, list(p.iterator()));
+		assertEquals(readInt(p.data(), 0), b.getInt(size));
+		assertEquals(0, b.getInt(0));
+	}
+
 	/**
 	 * Adds a {@link String} to a {@link SlottedPage} and checks if the added {@link String} at the specified index
 	 * 
@@ -175,6 +563,81 @@ public class SlottedPageTest {
 		}
 	}
 
+	/**
+	 * Measures the time spent compacting {@code SlottedPage}s from which every other object was removed, both by
+	 * {@link SlottedPage#compact()} and by deserializing each remaining object and serializing it again (as
+	 * {@link SlottedPage#compact()} did before it moved bytes).
+	 * 
+	 * @param codec
+	 *            the {@code Codec} of the {@code SlottedPage}s
+	 * @param pages
+	 *            the number of {@code SlottedPage}s to compact
+	 * @param out
+	 *            a {@code PrintStream}
+	 * @throws Exception
+	 *             if an error occurs
+	 */
+	static void compaction(Codec codec, int pages, PrintStream out) throws Exception {
+		long moving = 0, copying = 0;
+		for (int i = 0; i < pages; i++) {
+			CompactablePage p = new CompactablePage(codec);
+			int count = 0;
+			try {
+				while (true)
+					p.add("object " + count++);
+			} catch (OverflowException e) {
+			}
+			for (int j = 0; j < count - 1; j += 2)
+				p.remove(j);
+			long start = System.nanoTime();
+			SlottedPage q = new SlottedPage(0, codec);
+			for (int j = 0; j < count - 1; j++) {
+				Object o = p.get(j);
+				if (o != null)
+					q.add(o);
+			}
+			copying += System.nanoTime() - start;
+			start = System.nanoTime();
+			p.compact();
+			moving += System.nanoTime() - start;
+		}
+		out.printf("%s: moving bytes %.1f us/page, deserializing and serializing %.1f us/page%n",
+				codec.getClass().getSimpleName(), moving / 1e3 / pages, copying / 1e3 / pages);
+	}
+
+	/**
+	 * A {@code CompactablePage} is a {@code SlottedPage} that can be compacted on demand.
+	 */
+	static class CompactablePage extends SlottedPage {
+
+		/**
+		 * Constructs a {@code CompactablePage}.
+		 * 
+		 * @param codec
+		 *            the {@code Codec} that converts objects into the bytes stored in the {@code CompactablePage} and
+		 *            back
+		 */
+		CompactablePage(Codec codec) {
+			super(0, codec);
+		}
+
+		/**
+		 * Constructs a {@code CompactablePage} that stores its data in the specified {@code ByteBuffer}.
+		 * 
+		 * @param buffer
+		 *            a {@code ByteBuffer}
+		 */
+		CompactablePage(ByteBuffer buffer) {
+			super(0, buffer);
+		}
+
+		@Override
+		public void compact() throws IOException {
+			super.compact();
+		}
+
+	}
+
 	/**
 	 * Reads an integer at the specified location in the specified byte array.
 	 * 